@@ -6,6 +6,7 @@ from flask_cors import CORS
 import uuid
 from datetime import datetime
 import logging
+from concurrent.futures import ThreadPoolExecutor
 
 from inference import personality_detection
 from jamai import response_generator
@@ -384,6 +385,18 @@ def generate_and_get_optimized_url():
             "error": f"Internal server error: {str(e)}"
         }), 500
 
+HABIT_ANALYSIS_SYSTEM_INSTRUCTION = "You are an expert habit analyst and life coach. Provide detailed, actionable recommendations based on the habit data provided. Focus on practical steps, behavioral psychology principles, and sustainable habit formation strategies. Respond in brief, no more than 50 words."
+HABIT_ANALYSIS_MODEL = "gemini-2.5-flash-preview-05-20"
+# Upper bound on concurrent Gemini calls made for one batch request
+HABIT_ANALYSIS_BATCH_WORKERS = 8
+
+def generate_habit_recommendations(generator, analysis_prompt):
+    return generator.generate_text_only(
+        prompt=analysis_prompt,
+        system_instruction=HABIT_ANALYSIS_SYSTEM_INSTRUCTION,
+        model=HABIT_ANALYSIS_MODEL
+    )
+
 @app.route('/analyze-habits', methods=['POST'])
 def analyze_habits():
     """
@@ -404,20 +417,14 @@ def analyze_habits():
         generator = GeminiImageGenerator()
         
         # Generate text-only recommendations using dedicated text function
-        system_instruction = "You are an expert habit analyst and life coach. Provide detailed, actionable recommendations based on the habit data provided. Focus on practical steps, behavioral psychology principles, and sustainable habit formation strategies. Respond in brief, no more than 50 words."
-        
-        result = generator.generate_text_only(
-            prompt=analysis_prompt,
-            system_instruction=system_instruction,
-            model="gemini-2.5-flash-preview-05-20"
-        )
+        result = generate_habit_recommendations(generator, analysis_prompt)
         
         if result["success"]:
             return jsonify({
                 'success': True,
                 'recommendations': result["text"],
                 'prompt': analysis_prompt,
-                'system_instruction': system_instruction
+                'system_instruction': HABIT_ANALYSIS_SYSTEM_INSTRUCTION
             })
         else:
             return jsonify({
@@ -432,6 +439,52 @@ def analyze_habits():
             'error': str(e)
         }), 500
 
+@app.route('/analyze-habits/batch', methods=['POST'])
+def analyze_habits_batch():
+    """
+    Batch variant of /analyze-habits: takes {"requests": [{"id", "prompt"}, ...]} and returns
+    one result per id, so the backend pays the HTTP round trip once per batch instead of per user
+    """
+    try:
+        data = request.get_json()
+        items = data.get('requests', [])
+        
+        if not items:
+            return jsonify({
+                'success': False,
+                'error': 'No analysis requests provided'
+            }), 400
+        
+        generator = GeminiImageGenerator()
+        
+        def analyze(item):
+            item_id = item.get('id')
+            analysis_prompt = item.get('prompt', '')
+            if not analysis_prompt:
+                return {'id': item_id, 'success': False, 'error': 'No analysis prompt provided'}
+            try:
+                result = generate_habit_recommendations(generator, analysis_prompt)
+                if result["success"]:
+                    return {'id': item_id, 'success': True, 'recommendations': result["text"]}
+                return {'id': item_id, 'success': False, 'error': result.get("error", "No recommendations generated")}
+            except Exception as e:
+                return {'id': item_id, 'success': False, 'error': str(e)}
+        
+        with ThreadPoolExecutor(max_workers=min(len(items), HABIT_ANALYSIS_BATCH_WORKERS)) as executor:
+            results = list(executor.map(analyze, items))
+        
+        logger.info(f"Analyzed habit batch of {len(items)} prompts")
+        return jsonify({
+            'success': True,
+            'results': results
+        })
+            
+    except Exception as e:
+        return jsonify({
+            'success': False,
+            'error': str(e)
+        }), 500
+
 @app.route('/validate-habit', methods=['POST'])
 def validate_habit():
     """
@@ -1,20 +1,29 @@
 package com.possilives.main.Audit;
 
+import java.lang.reflect.Method;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import com.possilives.main.Model.AuditLog;
-import com.possilives.main.Model.Users;
+import com.possilives.main.Model.Generations;
+import com.possilives.main.Model.User_Habits;
 import com.possilives.main.Model.enums.ACTION_TYPES;
-import com.possilives.main.Model.enums.TARGET_TYPES;
-import com.possilives.main.Repository.AuditLogRepository;
-import com.possilives.main.Service.UserService;
+import com.possilives.main.Service.CurrentUserService;
+import com.possilives.main.Service.UserActivityService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -23,84 +32,108 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class AuditLogAspect {
 
-    private final AuditLogRepository auditLogRepository;
-    private final UserService userService; // service to get currently logged-in user
+    private final AuditLogWriter auditLogWriter;
+    private final CurrentUserService currentUserService; // resolves the logged-in user's id
+    private final UserActivityService userActivityService;
 
     @Pointcut("execution(* com.possilives.main.Service.*.*(..))")
     public void serviceMethods() {}
 
-    // @Around("serviceMethods()")
-    @Around("@annotation(com.possilives.main.Audit.Auditable)")
-    public Object logAudit(ProceedingJoinPoint joinPoint) throws Throwable {        // Capture method info
-        String signature = joinPoint.getSignature().toShortString();
-        
-        // Get method name
-        String methodName = joinPoint.getSignature().getName().toLowerCase();
-        ACTION_TYPES action = getActionType(methodName);
-        TARGET_TYPES target = getTargetType(joinPoint.getTarget().getClass().getSimpleName(), methodName);
-
-        // Initialize values
-        String id = null;
-        Integer habit_impact = null;
-
-        // Only extract ID and impact for updateHabitImpact
-        if ("updatehabitimpact".equals(methodName)) {
-            Object[] args = joinPoint.getArgs();
-
-            if (args != null && args.length > 0 && args[0] instanceof String) {
-                id = (String) args[0];
-            }
+    // Resolved on the first call of each audited method; afterwards a single map lookup
+    private final Map<Method, AuditMethodMetadata> metadataCache = new ConcurrentHashMap<>();
 
-            if (args.length > 1 && args[1] instanceof Integer) {
-                habit_impact = (Integer) args[1];
-            }
+    // Read rows are not used by the statistics, so by default reads are only counted
+    @Value("${audit.policy.read:COUNT_ONLY}")
+    private AuditPolicy readPolicy = AuditPolicy.COUNT_ONLY;
+
+    @Value("${audit.policy.read-sample-rate:0.01}")
+    private double readSampleRate = 0.01;
 
-            System.out.println("Habit impact for UserHabit " + id);
+    // @Around("serviceMethods()")
+    @Around("@annotation(com.possilives.main.Audit.Auditable)")
+    public Object logAudit(ProceedingJoinPoint joinPoint) throws Throwable {
+        AuditMethodMetadata metadata = metadataFor(joinPoint);
+        AuditPolicy policy = policyFor(metadata);
+        if (policy == AuditPolicy.OFF) {
+            return joinPoint.proceed();
         }
 
+        // getArgs() copies the argument array, so only ask for it when the method has rules for it
+        Object[] args = metadata.readsArgs() ? joinPoint.getArgs() : null;
+        Integer habit_impact = args != null ? metadata.impact(args) : null;
+        String argTargetId = args != null ? metadata.targetId(args) : null;
+
         // Proceed with method execution
         Object result = joinPoint.proceed();
 
-        // Save audit log
-        AuditLog log = new AuditLog();
-        log.setAction(action);
-        log.setTarget(target);
-        log.setSignature(signature);
-        log.setCreatedAt(LocalDateTime.now());        
-
-        if ("updatehabitimpact".equals(methodName)) {
-            log.setHabit_impact(habit_impact);
-            System.out.println("Setting habit_impact to: " + habit_impact);
-            System.out.println("AuditLog habit_impact after setting: " + log.getHabit_impact());
-        }
+        // Queue the audit log; it is inserted in the background together with other entries
+        Optional<String> currentUserId = currentUserService.getCurrentUserId();
+        if (currentUserId.isPresent()) {
+            String userId = currentUserId.get();
+            LocalDateTime createdAt = LocalDateTime.now();
+
+            // One entry per affected entity, so change queries can join on target_id
+            List<String> targetIds = metadata.idsFromResult() ? getCreatedIds(result) : List.of();
+            if (targetIds.isEmpty()) {
+                record(policy, metadata, userId, argTargetId, habit_impact, createdAt);
+            }
+            for (String targetId : targetIds) {
+                record(policy, metadata, userId, targetId, habit_impact, createdAt);
+            }
 
-        Optional<Users> user = userService.getCurrentUser();
-        if (user.isPresent()) {
-            log.setAuditBy(user.get());
-            System.out.println("Audit Log: " + log);
-            auditLogRepository.save(log);
+            if (metadata.marksActivity()) {
+                userActivityService.markDirty(userId);
+            }
         }
 
         return result;
     }
 
+    AuditMethodMetadata metadataFor(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        AuditMethodMetadata metadata = metadataCache.get(method);
+        if (metadata == null) {
+            metadata = metadataCache.computeIfAbsent(method, key -> AuditMethodMetadata.resolve(
+                key, joinPoint.getTarget().getClass(), joinPoint.getSignature().toShortString()));
+        }
+        return metadata;
+    }
+
+    // Writes always get ALWAYS, whatever the configuration says
+    AuditPolicy policyFor(AuditMethodMetadata metadata) {
+        return metadata.action() == ACTION_TYPES.R ? readPolicy : AuditPolicy.ALWAYS;
+    }
 
-    private ACTION_TYPES getActionType(String methodName) {
-        if (methodName.startsWith("create") || methodName.contains("send") || methodName.startsWith("save")) return ACTION_TYPES.C;
-        if (methodName.startsWith("get") || methodName.startsWith("find")) return ACTION_TYPES.R;
-        if (methodName.startsWith("update")) return ACTION_TYPES.U;
-        if (methodName.startsWith("delete") || methodName.startsWith("remove")) return ACTION_TYPES.D;
-        return null;
-    }    private TARGET_TYPES getTargetType(String className, String methodName) {
-        // Special case for updateHabitImpact - this should be INFLUENCE target
-        if ("updatehabitimpact".equals(methodName)) {
-            return TARGET_TYPES.INFLUENCE;
+    private void record(AuditPolicy policy, AuditMethodMetadata metadata, String userId, String targetId,
+            Integer habitImpact, LocalDateTime createdAt) {
+        switch (policy) {
+            case ALWAYS -> auditLogWriter.submit(new AuditLogWriter.AuditEvent(userId, metadata.action(),
+                metadata.target(), metadata.signature(), targetId, habitImpact, createdAt));
+            case SAMPLED -> {
+                AuditLogWriter.AuditEvent event = new AuditLogWriter.AuditEvent(userId, metadata.action(),
+                    metadata.target(), metadata.signature(), targetId, habitImpact, createdAt, false);
+                auditLogWriter.count(event);
+                if (ThreadLocalRandom.current().nextDouble() < readSampleRate) {
+                    auditLogWriter.submit(event);
+                }
+            }
+            case COUNT_ONLY -> auditLogWriter.count(new AuditLogWriter.AuditEvent(userId, metadata.action(),
+                metadata.target(), metadata.signature(), targetId, habitImpact, createdAt));
+            case OFF -> { }
+        }
+    }
+
+    // Ids of the entities a create method returned
+    private List<String> getCreatedIds(Object result) {
+        List<String> ids = new ArrayList<>();
+        Collection<?> entities = result instanceof Collection<?> collection ? collection : Collections.singletonList(result);
+        for (Object entity : entities) {
+            if (entity instanceof User_Habits userHabit && userHabit.getUser_habits_id() != null) {
+                ids.add(userHabit.getUser_habits_id());
+            } else if (entity instanceof Generations generation && generation.getGen_id() != null) {
+                ids.add(generation.getGen_id());
+            }
         }
-        
-        if (className.toLowerCase().contains("habit")) return TARGET_TYPES.USERHABIT;
-        if (className.toLowerCase().contains("generat")) return TARGET_TYPES.GENERATION;
-        if (className.toLowerCase().contains("influence")) return TARGET_TYPES.INFLUENCE;
-        if (className.toLowerCase().contains("notif")) return TARGET_TYPES.NOTIFICATION;
-        return null;
+        return ids;
     }
 }
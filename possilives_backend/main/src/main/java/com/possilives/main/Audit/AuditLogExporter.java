@@ -0,0 +1,135 @@
+package com.possilives.main.Audit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.possilives.main.Repository.AuditLogRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Bulk audit log extracts as CSV (same layout as the partition archives) or NDJSON, optionally
+// gzipped. Rows are read through a server-side cursor and written as they arrive, so memory
+// stays flat however many rows the range holds
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogExporter {
+  private static final String[] FIELDS = AuditLogPartitionManager.COLUMNS.split(", ");
+  private static final int HABIT_IMPACT = 6;
+  private static final int FLUSH_EVERY = 1000;
+
+  public enum Format {
+    CSV,
+    NDJSON
+  }
+
+  private final AuditLogRepository auditLogRepository;
+  private final ObjectMapper objectMapper;
+
+  // Writes every row of [startTime, endTime) ordered by (created_at, auditlog_id), all users when
+  // userId is null. To resume an interrupted export, pass the created_at and auditlog_id of the
+  // last row received; without afterId every row at afterCreatedAt is included.
+  // Returns the number of rows written
+  @Transactional(readOnly = true)
+  public long export(String userId, LocalDateTime startTime, LocalDateTime endTime,
+      LocalDateTime afterCreatedAt, String afterId, Format format, boolean gzip, OutputStream out) throws IOException {
+    GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+    Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? gzipOut : out, StandardCharsets.UTF_8), 64 * 1024);
+    JsonGenerator json = null;
+    if (format == Format.NDJSON) {
+      json = objectMapper.getFactory().createGenerator(writer);
+      json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      json.setRootValueSeparator(new SerializedString(""));
+    } else {
+      writer.write(String.join(",", FIELDS));
+      writer.write('\n');
+    }
+
+    long rows = 0;
+    try (Stream<Object[]> stream = auditLogRepository.streamForExport(userId, startTime, endTime,
+        afterCreatedAt != null ? afterCreatedAt : startTime, afterId != null ? afterId : "")) {
+      Iterator<Object[]> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        Object[] row = iterator.next();
+        if (json != null) {
+          writeJson(json, row);
+        } else {
+          writeCsv(writer, row);
+        }
+        if (++rows % FLUSH_EVERY == 0) {
+          flush(json, writer);
+        }
+      }
+    }
+
+    flush(json, writer);
+    if (gzipOut != null) {
+      gzipOut.finish();
+    }
+    out.flush();
+    log.info("Exported {} audit log rows as {}", rows, format);
+    return rows;
+  }
+
+  private void writeCsv(Writer writer, Object[] row) throws IOException {
+    for (int i = 0; i < FIELDS.length; i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      String value = text(row[i]);
+      if (value != null) {
+        writer.write(AuditLogPartitionManager.csv(value));
+      }
+    }
+    writer.write('\n');
+  }
+
+  private void writeJson(JsonGenerator json, Object[] row) throws IOException {
+    json.writeStartObject();
+    for (int i = 0; i < FIELDS.length; i++) {
+      if (row[i] == null) {
+        json.writeNullField(FIELDS[i]);
+      } else if (i == HABIT_IMPACT) {
+        json.writeNumberField(FIELDS[i], ((Number) row[i]).intValue());
+      } else {
+        json.writeStringField(FIELDS[i], text(row[i]));
+      }
+    }
+    json.writeEndObject();
+    json.writeRaw('\n');
+  }
+
+  private static void flush(JsonGenerator json, Writer writer) throws IOException {
+    if (json != null) {
+      json.flush();
+    }
+    writer.flush();
+  }
+
+  // ISO-8601 timestamps, so the last created_at can be passed back as afterCreatedAt
+  private static String text(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof Timestamp ts) {
+      return ts.toLocalDateTime().toString();
+    }
+    return value.toString();
+  }
+}
@@ -0,0 +1,298 @@
+package com.possilives.main.Audit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Keeps auditlog range-partitioned by month on created_at: converts the plain table once,
+// creates partitions ahead of time and archives partitions past the retention period to
+// gzipped CSV files before dropping them. Daily statistics survive archival in audit_daily_rollup
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogPartitionManager {
+  static final String COLUMNS = "auditlog_id, target, signature, target_id, action, created_at, habit_impact, audit_by_user_id";
+
+  private static final Pattern PARTITION_NAME = Pattern.compile("auditlog_p(\\d{4})_(\\d{2})");
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+  // Serializes partition DDL across nodes
+  private static final long LOCK_KEY = 0x6175646974L;
+
+  // created_at of old rows that have none, since the partition key can't be null
+  private static final String FALLBACK_CREATED_AT = "TIMESTAMP '1970-01-01'";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${audit.partitioning.enabled:true}")
+  private boolean enabled;
+
+  @Value("${audit.partitioning.months-ahead:2}")
+  private int monthsAhead;
+
+  // Whole months kept in auditlog, the current one included; 0 keeps everything
+  @Value("${audit.retention-months:12}")
+  private int retentionMonths;
+
+  @Value("${audit.archive.dir:audit-archive}")
+  private String archiveDir;
+
+  @Value("${audit.archive.fetch-size:5000}")
+  private int archiveFetchSize;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // Converts a plain auditlog table into a partitioned one, copying its rows over
+  public void ensurePartitioned() {
+    if (!enabled) {
+      return;
+    }
+    transactionTemplate.executeWithoutResult(status -> {
+      if (!lock()) {
+        return;
+      }
+      List<String> kind = jdbcTemplate.queryForList(
+          "SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass('auditlog')", String.class);
+      if (!kind.equals(List.of("r"))) {
+        return;
+      }
+
+      log.info("Converting auditlog into a table partitioned by month");
+      jdbcTemplate.execute("ALTER TABLE auditlog RENAME TO auditlog_legacy");
+      jdbcTemplate.execute("CREATE TABLE auditlog ("
+          + "auditlog_id varchar(255) NOT NULL, target varchar(255), signature varchar(255), target_id varchar(255), "
+          + "action varchar(255), created_at timestamp(6) NOT NULL, habit_impact integer, "
+          + "audit_by_user_id varchar(255) REFERENCES users (user_id), "
+          + "CONSTRAINT auditlog_partitioned_pkey PRIMARY KEY (auditlog_id, created_at)) "
+          + "PARTITION BY RANGE (created_at)");
+      // Catches rows of months without a partition (e.g. clock skew). createPartition moves them
+      // into their month's partition once it is created
+      jdbcTemplate.execute("CREATE TABLE auditlog_default PARTITION OF auditlog DEFAULT");
+
+      LocalDate oldest = jdbcTemplate.queryForObject(
+          "SELECT CAST(MIN(created_at) AS date) FROM auditlog_legacy", LocalDate.class);
+      YearMonth from = oldest == null ? YearMonth.now() : YearMonth.from(oldest);
+      createPartitions(from, YearMonth.now().plusMonths(monthsAhead));
+      // Months outside that range, such as the fallback month of rows without created_at, so
+      // every copied row lands in a monthly partition; expired ones are archived by archiveExpired
+      for (LocalDate month : jdbcTemplate.queryForList("SELECT DISTINCT CAST(date_trunc('month', "
+          + "COALESCE(created_at, " + FALLBACK_CREATED_AT + ")) AS date) FROM auditlog_legacy", LocalDate.class)) {
+        createPartition(YearMonth.from(month));
+      }
+
+      int copied = jdbcTemplate.update("INSERT INTO auditlog (" + COLUMNS + ") "
+          + "SELECT auditlog_id, target, signature, target_id, action, COALESCE(created_at, " + FALLBACK_CREATED_AT + "), "
+          + "habit_impact, audit_by_user_id FROM auditlog_legacy");
+      jdbcTemplate.execute("DROP TABLE auditlog_legacy");
+      log.info("Moved {} audit log rows into monthly partitions", copied);
+    });
+  }
+
+  @Scheduled(cron = "${audit.partitioning.maintenance-cron:0 15 3 * * *}")
+  public void maintain() {
+    if (!enabled) {
+      return;
+    }
+    // Separately, so a failure of one doesn't stop the other for good
+    try {
+      ensurePartitions();
+    } catch (Exception e) {
+      log.error("Creating audit log partitions failed: {}", e.getMessage());
+    }
+    try {
+      archiveExpired();
+    } catch (Exception e) {
+      log.error("Archiving audit log partitions failed: {}", e.getMessage());
+    }
+  }
+
+  public void ensurePartitions() {
+    transactionTemplate.executeWithoutResult(status -> {
+      if (lock()) {
+        createPartitions(YearMonth.now(), YearMonth.now().plusMonths(monthsAhead));
+      }
+    });
+  }
+
+  // Archives and drops every partition that ends before the retention window, in two steps:
+  // each partition is detached in its own short transaction, which is the only point that takes
+  // the ACCESS EXCLUSIVE lock on auditlog, and then every detached month table is archived and
+  // dropped on its own. Tables left detached by a failed archive are picked up again on the next run
+  public void archiveExpired() {
+    if (retentionMonths <= 0) {
+      return;
+    }
+    YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths - 1L);
+    for (String partition : listPartitions()) {
+      if (isExpired(partition, oldestKept)) {
+        transactionTemplate.executeWithoutResult(status -> {
+          if (lock()) {
+            jdbcTemplate.execute("ALTER TABLE auditlog DETACH PARTITION " + partition);
+          }
+        });
+      }
+    }
+    for (String table : listDetachedPartitions()) {
+      if (isExpired(table, oldestKept)) {
+        transactionTemplate.executeWithoutResult(status -> {
+          if (lock()) {
+            archive(table);
+          }
+        });
+      }
+    }
+  }
+
+  List<String> listPartitions() {
+    return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i "
+        + "JOIN pg_class c ON c.oid = i.inhrelid "
+        + "WHERE i.inhparent = to_regclass('auditlog') ORDER BY c.relname", String.class);
+  }
+
+  // Month tables that are no longer attached to auditlog
+  List<String> listDetachedPartitions() {
+    return jdbcTemplate.queryForList("SELECT c.relname FROM pg_class c "
+        + "WHERE c.relkind = 'r' AND NOT c.relispartition AND c.relname ~ '^auditlog_p[0-9]{4}_[0-9]{2}$' "
+        + "AND c.relnamespace = current_schema()::regnamespace ORDER BY c.relname", String.class);
+  }
+
+  private static boolean isExpired(String partition, YearMonth oldestKept) {
+    Optional<YearMonth> month = monthOf(partition);
+    return month.isPresent() && month.get().isBefore(oldestKept);
+  }
+
+  // Writes a detached month table to a gzipped CSV file and drops it. Only the standalone table
+  // is locked meanwhile, so audit writes and reads on auditlog carry on
+  private void archive(String partition) {
+    Path dir = Paths.get(archiveDir);
+    Path target = dir.resolve(partition + ".csv.gz");
+    Path tmp = dir.resolve(partition + ".csv.gz.tmp");
+    long[] rows = new long[1];
+    try {
+      Files.createDirectories(dir);
+      try (Writer out = new BufferedWriter(new OutputStreamWriter(
+          new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+        out.write(COLUMNS.replace(" ", ""));
+        out.write('\n');
+        // Streams the partition with a cursor instead of loading it into memory
+        jdbcTemplate.query(connection -> {
+          PreparedStatement statement = connection.prepareStatement(
+              "SELECT " + COLUMNS + " FROM " + partition + " ORDER BY created_at");
+          statement.setFetchSize(archiveFetchSize);
+          return statement;
+        }, (RowCallbackHandler) rs -> {
+          writeRow(out, rs);
+          rows[0]++;
+        });
+      }
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not archive " + partition, e);
+    }
+
+    jdbcTemplate.execute("DROP TABLE " + partition);
+    log.info("Archived {} audit log rows of {} to {}", rows[0], partition, target);
+  }
+
+  private void writeRow(Writer out, ResultSet rs) throws SQLException {
+    try {
+      int columns = rs.getMetaData().getColumnCount();
+      for (int i = 1; i <= columns; i++) {
+        if (i > 1) {
+          out.write(',');
+        }
+        String value = rs.getString(i);
+        if (value != null) {
+          out.write(csv(value));
+        }
+      }
+      out.write('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static String csv(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private void createPartitions(YearMonth from, YearMonth to) {
+    for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+      createPartition(month);
+    }
+  }
+
+  // Postgres refuses a new partition while auditlog_default holds rows of its range. Those rows
+  // are then moved into a standalone table, which is attached as the partition. auditlog_default
+  // stays locked meanwhile, so no row of the month can slip in between
+  private void createPartition(YearMonth month) {
+    String partition = partitionName(month);
+    LocalDate start = month.atDay(1);
+    LocalDate end = month.plusMonths(1).atDay(1);
+    String bounds = "FOR VALUES FROM ('" + start + "') TO ('" + end + "')";
+    boolean exists = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+        "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition));
+    if (!exists && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+        "SELECT EXISTS (SELECT 1 FROM auditlog_default WHERE created_at >= ? AND created_at < ?)", Boolean.class, start, end))) {
+      jdbcTemplate.execute("LOCK TABLE auditlog_default IN ACCESS EXCLUSIVE MODE");
+      jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE auditlog INCLUDING DEFAULTS)");
+      int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM auditlog_default "
+          + "WHERE created_at >= ? AND created_at < ? RETURNING " + COLUMNS + ") "
+          + "INSERT INTO " + partition + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM moved", start, end);
+      jdbcTemplate.execute("ALTER TABLE auditlog ATTACH PARTITION " + partition + " " + bounds);
+      log.info("Moved {} audit log rows from auditlog_default into {}", moved, partition);
+      return;
+    }
+    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF auditlog " + bounds);
+  }
+
+  static String partitionName(YearMonth month) {
+    return "auditlog_p" + month.format(PARTITION_SUFFIX);
+  }
+
+  static Optional<YearMonth> monthOf(String partition) {
+    Matcher matcher = PARTITION_NAME.matcher(partition);
+    if (!matcher.matches()) {
+      return Optional.empty();
+    }
+    return Optional.of(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+  }
+
+  private boolean lock() {
+    return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY));
+  }
+}
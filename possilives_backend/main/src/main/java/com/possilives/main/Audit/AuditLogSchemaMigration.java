@@ -0,0 +1,113 @@
+package com.possilives.main.Audit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.possilives.main.Service.AuditRollupService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Adds auditlog.target_id, monthly partitioning, the indexes and the audit_daily_rollup table to existing databases,
+// backfills target_id for old rows and builds the rollups once from the existing history.
+// Old entries only stored a method signature, so target_id is only filled where the signature
+// contains the id; every other old row keeps a NULL target_id. The schema statements are
+// idempotent and run on each startup; the backfill runs once, recorded in audit_migration
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogSchemaMigration implements ApplicationRunner {
+  private static final String UUID_PATTERN = "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}";
+
+  static final String BACKFILL_FROM_SIGNATURE = "UPDATE auditlog SET target_id = substring(signature from '" + UUID_PATTERN + "') "
+      + "WHERE auditlog_id IN (SELECT auditlog_id FROM auditlog "
+      + "WHERE target_id IS NULL AND signature ~ '" + UUID_PATTERN + "' LIMIT ?)";
+
+  static final String TARGET_ID_BACKFILL = "auditlog-target-id-backfill";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final AuditRollupService auditRollupService;
+  private final AuditLogPartitionManager auditLogPartitionManager;
+  private final AuditLogWriter auditLogWriter;
+
+  @Value("${audit.migration.enabled:true}")
+  private boolean enabled;
+
+  @Value("${audit.migration.backfill-batch-size:10000}")
+  private int backfillBatchSize;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!enabled) {
+      auditLogWriter.tableReady();
+      return;
+    }
+    try {
+      try {
+        jdbcTemplate.execute("ALTER TABLE auditlog ADD COLUMN IF NOT EXISTS target_id varchar(255)");
+        // Before the indexes, so they are created on the partitioned parent and cascade to every partition
+        auditLogPartitionManager.ensurePartitioned();
+      } finally {
+        // The writer holds its rows back until the table is converted; a failed conversion
+        // leaves the plain table, which takes the rows as before
+        auditLogWriter.tableReady();
+      }
+      if (auditLogPartitionManager.isEnabled()) {
+        auditLogPartitionManager.ensurePartitions();
+      }
+      jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_auditlog_target_id ON auditlog (target_id)");
+      jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_auditlog_user_created ON auditlog (audit_by_user_id, created_at)");
+      // Export order; lets a resumed export seek straight to its last key
+      jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_auditlog_created_id ON auditlog (created_at, auditlog_id)");
+      jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS audit_daily_rollup ("
+          + "user_id varchar(255) NOT NULL, log_date date NOT NULL, action varchar(255) NOT NULL, target varchar(255) NOT NULL, "
+          + "event_count bigint NOT NULL, impact_sum bigint NOT NULL, impact_count bigint NOT NULL, "
+          + "PRIMARY KEY (user_id, log_date, action, target))");
+      // Platform analytics read whole days across all users
+      jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_audit_daily_rollup_date ON audit_daily_rollup (log_date)");
+
+      jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS audit_migration ("
+          + "name varchar(255) PRIMARY KEY, applied_at timestamp(6) NOT NULL)");
+
+      if (!isApplied(TARGET_ID_BACKFILL)) {
+        int fromSignature = backfill(BACKFILL_FROM_SIGNATURE);
+        markApplied(TARGET_ID_BACKFILL);
+        log.info("Backfilled auditlog.target_id for {} rows from signatures", fromSignature);
+      }
+    } catch (Exception e) {
+      // Audit history stays readable without the backfill, so don't block startup
+      log.error("Audit log schema migration failed: {}", e.getMessage());
+    }
+
+    try {
+      auditRollupService.initializeIfEmpty();
+    } catch (Exception e) {
+      log.error("Initial audit rollup build failed: {}", e.getMessage());
+    }
+  }
+
+  private boolean isApplied(String migration) {
+    Integer count = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM audit_migration WHERE name = ?", Integer.class, migration);
+    return count != null && count > 0;
+  }
+
+  private void markApplied(String migration) {
+    jdbcTemplate.update("INSERT INTO audit_migration (name, applied_at) VALUES (?, now()) "
+        + "ON CONFLICT (name) DO NOTHING", migration);
+  }
+
+  // Updates in bounded batches so a large auditlog isn't locked by one long statement
+  private int backfill(String sql) {
+    int total = 0;
+    int updated;
+    do {
+      updated = jdbcTemplate.update(sql, backfillBatchSize);
+      total += updated;
+    } while (updated == backfillBatchSize);
+    return total;
+  }
+}
@@ -0,0 +1,365 @@
+package com.possilives.main.Audit;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Writes audit log rows off the request thread. Events are queued in a bounded buffer and
+// inserted by a single background thread as JDBC batches, once batch-size events are
+// waiting or flush-ms has passed since the oldest one was queued. Each batch also increments
+// the matching audit_daily_rollup rows. Events that are only counted never reach the queue:
+// they are summed in memory and added to audit_daily_rollup every counters flush-ms.
+// Nothing is inserted before AuditLogSchemaMigration has brought auditlog into shape (see tableReady)
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogWriter {
+  static final String INSERT_SQL = "INSERT INTO auditlog "
+      + "(auditlog_id, target, signature, target_id, action, created_at, habit_impact, audit_by_user_id) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  static final String UPSERT_ROLLUP_SQL = "INSERT INTO audit_daily_rollup "
+      + "(user_id, log_date, action, target, event_count, impact_sum, impact_count) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+      + "ON CONFLICT (user_id, log_date, action, target) DO UPDATE SET "
+      + "event_count = audit_daily_rollup.event_count + EXCLUDED.event_count, "
+      + "impact_sum = audit_daily_rollup.impact_sum + EXCLUDED.impact_sum, "
+      + "impact_count = audit_daily_rollup.impact_count + EXCLUDED.impact_count";
+
+  private static final long POLL_SLICE_MS = 100;
+
+  // What to do with an event when the queue is full
+  public enum OverflowPolicy {
+    // Wait up to offer-timeout-ms for space, then drop the event
+    BLOCK,
+    // Drop the event straight away
+    DROP,
+    // Insert the event on the calling thread
+    CALLER_RUNS
+  }
+
+  // countInRollup is false for sampled rows whose calls are already counted through count()
+  public record AuditEvent(String userId, ACTION_TYPES action, TARGET_TYPES target, String signature,
+      String targetId, Integer habitImpact, LocalDateTime createdAt, boolean countInRollup) {
+
+    public AuditEvent(String userId, ACTION_TYPES action, TARGET_TYPES target, String signature,
+        String targetId, Integer habitImpact, LocalDateTime createdAt) {
+      this(userId, action, target, signature, targetId, habitImpact, createdAt, true);
+    }
+  }
+
+  private record RollupKey(String userId, LocalDate logDate, ACTION_TYPES action, TARGET_TYPES target) {
+  }
+
+  private static final Comparator<RollupKey> ROLLUP_ORDER = Comparator.comparing(RollupKey::userId)
+      .thenComparing(RollupKey::logDate)
+      .thenComparing(RollupKey::action)
+      .thenComparing(RollupKey::target);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${audit.writer.queue-capacity:10000}")
+  private int queueCapacity;
+
+  @Value("${audit.writer.batch-size:200}")
+  private int batchSize;
+
+  @Value("${audit.writer.flush-ms:250}")
+  private long flushMs;
+
+  @Value("${audit.writer.overflow-policy:BLOCK}")
+  private OverflowPolicy overflowPolicy;
+
+  @Value("${audit.writer.offer-timeout-ms:50}")
+  private long offerTimeoutMs;
+
+  @Value("${audit.writer.shutdown-wait-seconds:10}")
+  private long shutdownWaitSeconds;
+
+  // Calls counted since the last flush, per rollup row
+  private final Map<RollupKey, Long> pendingCounts = new ConcurrentHashMap<>();
+
+  // Opened by tableReady(); until then events wait in the queue, so no insert races the
+  // one-time conversion of auditlog into a partitioned table
+  private final CountDownLatch tableReady = new CountDownLatch(1);
+
+  private BlockingQueue<AuditEvent> queue;
+  private Thread writerThread;
+  private volatile boolean stopping;
+
+  private Counter written;
+  private Counter dropped;
+  private Counter failed;
+  private Counter counted;
+  private Timer batchTimer;
+
+  @PostConstruct
+  public void start() {
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    written = meterRegistry.counter("audit.writer.events", "result", "written");
+    dropped = meterRegistry.counter("audit.writer.events", "result", "dropped");
+    failed = meterRegistry.counter("audit.writer.events", "result", "failed");
+    counted = meterRegistry.counter("audit.writer.events", "result", "counted");
+    batchTimer = meterRegistry.timer("audit.writer.batch");
+    meterRegistry.gaugeCollectionSize("audit.writer.queue.size", Tags.empty(), queue);
+
+    writerThread = new Thread(this::runWriter, "audit-log-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  public void submit(AuditEvent event) {
+    if (stopping) {
+      // The background writer is gone or about to be; don't leave the event behind in the queue
+      writeBatch(List.of(event));
+      return;
+    }
+    if (queue.offer(event)) {
+      return;
+    }
+
+    switch (overflowPolicy) {
+      case BLOCK -> {
+        try {
+          if (queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+            return;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        drop(event);
+      }
+      case CALLER_RUNS -> {
+        if (tableReady.getCount() == 0) {
+          writeBatch(List.of(event));
+        } else {
+          drop(event);
+        }
+      }
+      case DROP -> drop(event);
+    }
+  }
+
+  // Adds the event to its audit_daily_rollup row without writing an auditlog row
+  public void count(AuditEvent event) {
+    if (event.userId() == null || event.action() == null || event.target() == null) {
+      return;
+    }
+    pendingCounts.merge(rollupKey(event), 1L, Long::sum);
+    counted.increment();
+  }
+
+  @Scheduled(fixedDelayString = "${audit.counters.flush-ms:60000}")
+  public void flushCounts() {
+    if (pendingCounts.isEmpty()) {
+      return;
+    }
+    // remove() hands over each total atomically; calls counted meanwhile start a new entry
+    Map<RollupKey, long[]> increments = new TreeMap<>(ROLLUP_ORDER);
+    for (RollupKey key : pendingCounts.keySet()) {
+      Long count = pendingCounts.remove(key);
+      if (count != null) {
+        increments.put(key, new long[] {count, 0, 0});
+      }
+    }
+    try {
+      transactionTemplate.executeWithoutResult(status -> upsertRollups(increments));
+    } catch (Exception e) {
+      // Keep the counts for the next flush
+      increments.forEach((key, sums) -> pendingCounts.merge(key, sums[0], Long::sum));
+      log.error("Failed to flush {} audit counters: {}", increments.size(), e.getMessage());
+    }
+  }
+
+  private void drop(AuditEvent event) {
+    dropped.increment();
+    log.warn("Audit queue full, dropped {} {} by user {}", event.action(), event.signature(), event.userId());
+  }
+
+  // Called once auditlog has its final shape, or the schema migration is disabled
+  public void tableReady() {
+    tableReady.countDown();
+  }
+
+  private void runWriter() {
+    if (!awaitTableReady()) {
+      // Shutting down first; shutdown() writes what is queued
+      return;
+    }
+    List<AuditEvent> batch = new ArrayList<>(batchSize);
+    while (!stopping) {
+      try {
+        AuditEvent first = queue.poll(pollSliceNanos(Long.MAX_VALUE), TimeUnit.NANOSECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+
+        // Keep collecting until the batch is full or the oldest event has waited flush-ms
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMs);
+        while (batch.size() < batchSize && !stopping) {
+          queue.drainTo(batch, batchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+          AuditEvent next = queue.poll(pollSliceNanos(remaining), TimeUnit.NANOSECONDS);
+          if (next != null) {
+            batch.add(next);
+          }
+        }
+
+        writeBatch(batch);
+      } catch (InterruptedException e) {
+        writeBatch(batch);
+        break;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private boolean awaitTableReady() {
+    try {
+      while (!stopping) {
+        if (tableReady.await(POLL_SLICE_MS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  // Waits are cut into short slices so the writer notices shutdown without being interrupted,
+  // which could otherwise abort a JDBC batch halfway
+  private long pollSliceNanos(long remainingNanos) {
+    return Math.min(remainingNanos, TimeUnit.MILLISECONDS.toNanos(Math.min(flushMs, POLL_SLICE_MS)));
+  }
+
+  void writeBatch(List<AuditEvent> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      // Rows and their rollup increments commit together, so the rollups never count a lost row
+      batchTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+        insertRows(batch);
+        upsertRollups(rollupIncrements(batch));
+      }));
+      written.increment(batch.size());
+    } catch (Exception e) {
+      failed.increment(batch.size());
+      log.error("Failed to write {} audit log entries: {}", batch.size(), e.getMessage());
+    }
+  }
+
+  private void insertRows(List<AuditEvent> batch) {
+    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+      ps.setString(1, UUID.randomUUID().toString());
+      ps.setString(2, event.target() == null ? null : event.target().name());
+      ps.setString(3, event.signature());
+      ps.setString(4, event.targetId());
+      ps.setString(5, event.action() == null ? null : event.action().name());
+      ps.setTimestamp(6, Timestamp.valueOf(event.createdAt()));
+      if (event.habitImpact() == null) {
+        ps.setNull(7, Types.INTEGER);
+      } else {
+        ps.setInt(7, event.habitImpact());
+      }
+      ps.setString(8, event.userId());
+    });
+  }
+
+  // Collapses the batch to one increment per rollup row; sorted so concurrent upserts lock in the same order
+  private Map<RollupKey, long[]> rollupIncrements(List<AuditEvent> batch) {
+    Map<RollupKey, long[]> increments = new TreeMap<>(ROLLUP_ORDER);
+    for (AuditEvent event : batch) {
+      if (!event.countInRollup() || event.userId() == null || event.action() == null || event.target() == null) {
+        continue;
+      }
+      long[] sums = increments.computeIfAbsent(rollupKey(event), k -> new long[3]);
+      sums[0]++;
+      if (event.habitImpact() != null) {
+        sums[1] += event.habitImpact();
+        sums[2]++;
+      }
+    }
+    return increments;
+  }
+
+  private static RollupKey rollupKey(AuditEvent event) {
+    return new RollupKey(event.userId(), event.createdAt().toLocalDate(), event.action(), event.target());
+  }
+
+  private void upsertRollups(Map<RollupKey, long[]> increments) {
+    if (increments.isEmpty()) {
+      return;
+    }
+
+    List<Map.Entry<RollupKey, long[]>> rows = new ArrayList<>(increments.entrySet());
+    jdbcTemplate.batchUpdate(UPSERT_ROLLUP_SQL, rows, rows.size(), (ps, row) -> {
+      RollupKey key = row.getKey();
+      ps.setString(1, key.userId());
+      ps.setDate(2, Date.valueOf(key.logDate()));
+      ps.setString(3, key.action().name());
+      ps.setString(4, key.target().name());
+      ps.setLong(5, row.getValue()[0]);
+      ps.setLong(6, row.getValue()[1]);
+      ps.setLong(7, row.getValue()[2]);
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    stopping = true;
+    if (writerThread != null) {
+      try {
+        writerThread.join(TimeUnit.SECONDS.toMillis(shutdownWaitSeconds));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    List<AuditEvent> remaining = new ArrayList<>(batchSize);
+    while (queue.drainTo(remaining, batchSize) > 0) {
+      writeBatch(remaining);
+      remaining.clear();
+    }
+    flushCounts();
+  }
+}
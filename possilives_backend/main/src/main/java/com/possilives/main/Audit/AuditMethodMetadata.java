@@ -0,0 +1,68 @@
+package com.possilives.main.Audit;
+
+import java.lang.reflect.Method;
+
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+
+// Everything AuditLogAspect needs to know about an audited method, resolved once per Method
+// from @Auditable, with the method and class name heuristics as a fallback
+public record AuditMethodMetadata(
+    ACTION_TYPES action,
+    TARGET_TYPES target,
+    String signature,
+    int targetIdArg,
+    int impactArg,
+    // Creates report the ids of the entities they return
+    boolean idsFromResult,
+    // Habit writes change the input of the user's next habit analysis
+    boolean marksActivity) {
+
+  public static AuditMethodMetadata resolve(Method method, Class<?> targetClass, String signature) {
+    Auditable auditable = method.getAnnotation(Auditable.class);
+    String methodName = method.getName().toLowerCase();
+
+    ACTION_TYPES action = auditable != null && auditable.action().length > 0
+        ? auditable.action()[0]
+        : getActionType(methodName);
+    TARGET_TYPES target = auditable != null && auditable.target().length > 0
+        ? auditable.target()[0]
+        : getTargetType(targetClass.getSimpleName());
+    int targetIdArg = auditable != null ? auditable.targetIdArg() : -1;
+    int impactArg = auditable != null ? auditable.impactArg() : -1;
+
+    boolean marksActivity = action != null && action != ACTION_TYPES.R
+        && (target == TARGET_TYPES.USERHABIT || target == TARGET_TYPES.INFLUENCE);
+    return new AuditMethodMetadata(action, target, signature, targetIdArg, impactArg,
+        action == ACTION_TYPES.C && targetIdArg < 0, marksActivity);
+  }
+
+  public String targetId(Object[] args) {
+    return targetIdArg >= 0 && targetIdArg < args.length && args[targetIdArg] instanceof String id ? id : null;
+  }
+
+  public Integer impact(Object[] args) {
+    return impactArg >= 0 && impactArg < args.length && args[impactArg] instanceof Integer value ? value : null;
+  }
+
+  public boolean readsArgs() {
+    return targetIdArg >= 0 || impactArg >= 0;
+  }
+
+  static ACTION_TYPES getActionType(String methodName) {
+    if (methodName.startsWith("create") || methodName.contains("send") || methodName.startsWith("save")) return ACTION_TYPES.C;
+    if (methodName.startsWith("get") || methodName.startsWith("find")) return ACTION_TYPES.R;
+    if (methodName.startsWith("update")) return ACTION_TYPES.U;
+    if (methodName.startsWith("delete") || methodName.startsWith("remove")) return ACTION_TYPES.D;
+    return null;
+  }
+
+  static TARGET_TYPES getTargetType(String className) {
+    String name = className.toLowerCase();
+    if (name.contains("habit")) return TARGET_TYPES.USERHABIT;
+    if (name.contains("generat")) return TARGET_TYPES.GENERATION;
+    if (name.contains("influence")) return TARGET_TYPES.INFLUENCE;
+    if (name.contains("notif")) return TARGET_TYPES.NOTIFICATION;
+    return null;
+  }
+}
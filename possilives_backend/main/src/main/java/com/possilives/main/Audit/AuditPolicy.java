@@ -0,0 +1,15 @@
+package com.possilives.main.Audit;
+
+// How calls of an audited action are recorded. Only reads are configurable
+// (audit.policy.read); creates, updates and deletes are always written in full
+public enum AuditPolicy {
+  // One auditlog row per call
+  ALWAYS,
+  // Every call is counted in audit_daily_rollup; an auditlog row is written for a random
+  // share of calls (audit.policy.read-sample-rate)
+  SAMPLED,
+  // Every call is counted in audit_daily_rollup, no auditlog rows
+  COUNT_ONLY,
+  // Not recorded at all
+  OFF
+}
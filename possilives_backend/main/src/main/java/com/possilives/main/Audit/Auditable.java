@@ -5,8 +5,23 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+
+// Marks a service method whose calls are written to the audit log. Attributes left at their
+// defaults are derived from the method and class names (see AuditMethodMetadata)
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface Auditable {
-}
+  // At most one value; empty derives it from the method name
+  ACTION_TYPES[] action() default {};
+
+  // At most one value; empty derives it from the class name
+  TARGET_TYPES[] target() default {};
 
+  // Index of the String argument holding the affected entity's id, or -1
+  int targetIdArg() default -1;
+
+  // Index of the Integer argument holding the new habit impact, or -1
+  int impactArg() default -1;
+}
@@ -0,0 +1,34 @@
+package com.possilives.main.Config;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Per-endpoint async request timeouts. A handler whose async response (e.g. a StreamingResponseBody)
+// may run past the container default sets TIMEOUT_ATTRIBUTE on the request, in milliseconds and
+// 0 for none; it is applied right before async processing starts
+@Configuration
+public class AsyncTimeoutConfig implements WebMvcConfigurer {
+  public static final String TIMEOUT_ATTRIBUTE = AsyncTimeoutConfig.class.getName() + ".timeout";
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.registerCallableInterceptors(new TimeoutOverride());
+  }
+
+  public static class TimeoutOverride implements CallableProcessingInterceptor {
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+      Object timeout = request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+      if (timeout instanceof Long millis && request instanceof AsyncWebRequest asyncRequest) {
+        asyncRequest.setTimeout(millis);
+      }
+    }
+  }
+}
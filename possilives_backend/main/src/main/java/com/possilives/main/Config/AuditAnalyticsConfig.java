@@ -0,0 +1,36 @@
+package com.possilives.main.Config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AuditAnalyticsConfig {
+
+  // Runs the per-partition queries of platform analytics. Bounded in threads and queue, so a
+  // long range can't take more database connections than the pool has threads; when the queue
+  // is full the requesting thread runs the partition itself
+  @Bean(destroyMethod = "shutdown")
+  public ThreadPoolExecutor auditAnalyticsExecutor(
+      @Value("${audit.analytics.threads:4}") int threads,
+      @Value("${audit.analytics.queue-capacity:64}") int queueCapacity) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadPoolExecutor(
+        threads,
+        threads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "audit-analytics-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+}
@@ -0,0 +1,37 @@
+package com.possilives.main.Config;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HabitAnalysisConfig {
+
+  // Dedicated pool for per-user habit analysis tasks. The batch run never has more than
+  // max-in-flight tasks submitted, so the extra interactive threads are always free for
+  // on-demand triggers; the priority queue puts those ahead of batch work if they still queue.
+  // Only PrioritizedTask may be submitted, and only through execute()
+  @Bean(destroyMethod = "shutdown")
+  public ThreadPoolExecutor habitAnalysisExecutor(
+      @Value("${habit.analysis.max-in-flight:8}") int maxInFlight,
+      @Value("${habit.analysis.interactive-threads:1}") int interactiveThreads) {
+    AtomicInteger threadCount = new AtomicInteger();
+    int poolSize = maxInFlight + interactiveThreads;
+    return new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new PriorityBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "habit-analysis-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+}
@@ -0,0 +1,39 @@
+package com.possilives.main.Config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Task for the habit analysis pool. Its queue is ordered by priority first and submission
+// order second, so interactive requests overtake queued batch work but stay FIFO among themselves
+public final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+  public enum Priority {
+    INTERACTIVE,
+    BATCH
+  }
+
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  private final Priority priority;
+  private final long sequence = SEQUENCE.getAndIncrement();
+  private final Runnable task;
+
+  public PrioritizedTask(Priority priority, Runnable task) {
+    this.priority = priority;
+    this.task = task;
+  }
+
+  public Priority getPriority() {
+    return priority;
+  }
+
+  @Override
+  public void run() {
+    task.run();
+  }
+
+  @Override
+  public int compareTo(PrioritizedTask other) {
+    int byPriority = priority.compareTo(other.priority);
+    return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+  }
+}
@@ -1,21 +1,41 @@
 package com.possilives.main.Controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.possilives.main.Audit.AuditLogExporter;
+import com.possilives.main.Config.AsyncTimeoutConfig;
 import com.possilives.main.DTO.AuditLogRequestDTO;
+import com.possilives.main.DTO.PlatformStatisticsDTO;
 import com.possilives.main.DTO.StatisticsDTO;
 import com.possilives.main.Model.enums.ACTION_TYPES;
 import com.possilives.main.Model.enums.TARGET_TYPES;
 import com.possilives.main.Service.AuditLogService;
+import com.possilives.main.Service.PlatformAnalyticsService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 @RestController
 @RequestMapping("/api/audit")
@@ -23,6 +43,17 @@ import java.util.List;
 @CrossOrigin("*")
 public class AuditLogController {
     private final AuditLogService auditLogService;
+    private final ObjectMapper objectMapper;
+    private final AuditLogExporter auditLogExporter;
+    private final PlatformAnalyticsService platformAnalyticsService;
+
+    // Exports of a whole month can stream for many minutes; 0 lets them run until the last row
+    @Value("${audit.export.timeout-ms:0}")
+    private long exportTimeoutMillis;
+
+    // Flush the first day right away for a fast first byte, then every FLUSH_EVERY days
+    private static final int FLUSH_EVERY = 100;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
     
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/statistics")
@@ -72,4 +103,98 @@ public class AuditLogController {
         
         return ResponseEntity.ok(statistics);
     }
-}
\ No newline at end of file
+
+    // Day buckets in date order as NDJSON, one StatisticsStreamDTO per line, followed by a
+    // {"averageInfluence": ...} trailer line once all days are sent
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping(value = "/statistics/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamStatisticsNdjson(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        String keycloakId = jwt.getSubject();
+        StreamingResponseBody body = out -> streamStatistics(keycloakId, startTime, endTime.plusDays(1), out,
+            json -> json + "\n",
+            json -> "{\"averageInfluence\":" + json + "}\n");
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    // The same stream as Server-Sent Events: "day" events, then a "summary" event with the average influence
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping(value = "/statistics/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStatisticsEvents(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        String keycloakId = jwt.getSubject();
+        StreamingResponseBody body = out -> streamStatistics(keycloakId, startTime, endTime.plusDays(1), out,
+            json -> "event: day\ndata: " + json + "\n\n",
+            json -> "event: summary\ndata: {\"averageInfluence\":" + json + "}\n\n");
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(body);
+    }
+
+    private void streamStatistics(String keycloakId, LocalDateTime startTime, LocalDateTime endTime, OutputStream out,
+            UnaryOperator<String> dayFrame, UnaryOperator<String> trailerFrame) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        int[] sent = {0};
+        try {
+            double averageInfluence = auditLogService.streamAuditAggregation(keycloakId, startTime, endTime, day -> {
+                try {
+                    writer.write(dayFrame.apply(objectMapper.writeValueAsString(day)));
+                    if (sent[0]++ % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.write(trailerFrame.apply(objectMapper.writeValueAsString(averageInfluence)));
+        } catch (UncheckedIOException e) {
+            // Client went away; the cursor and transaction are already closed by now
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    // Compliance extract of raw audit rows in [startTime, endTime), for one user or all of them.
+    // Resume a broken download with the created_at and auditlog_id of the last row received.
+    // Auditors only (see SecurityConfig)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+            @RequestParam(required = false) String afterId,
+            @RequestParam(defaultValue = "CSV") AuditLogExporter.Format format,
+            @RequestParam(defaultValue = "true") boolean gzip,
+            HttpServletRequest request) {
+        request.setAttribute(AsyncTimeoutConfig.TIMEOUT_ATTRIBUTE, exportTimeoutMillis);
+        String extension = format == AuditLogExporter.Format.CSV ? ".csv" : ".ndjson";
+        MediaType contentType = format == AuditLogExporter.Format.CSV ? MediaType.parseMediaType("text/csv") : APPLICATION_NDJSON;
+        if (gzip) {
+            extension += ".gz";
+            contentType = MediaType.parseMediaType("application/gzip");
+        }
+
+        StreamingResponseBody body = out -> auditLogExporter.export(userId, startTime, endTime, afterCreatedAt, afterId,
+            format, gzip, out);
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("auditlog" + extension).build().toString())
+            .body(body);
+    }
+
+    // Platform-wide daily active users, habit creations and generations, startDate to endDate inclusive.
+    // Admins only (see SecurityConfig)
+    @GetMapping("/platform-statistics")
+    public ResponseEntity<List<PlatformStatisticsDTO>> getPlatformStatistics(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(platformAnalyticsService.getDailyStatistics(startDate, endDate.plusDays(1)));
+    }
+}
@@ -1,19 +1,29 @@
 package com.possilives.main.Controller;
 
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.possilives.main.Model.Users;
-import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.DTO.HabitAnalysisJobDTO;
+import com.possilives.main.DTO.HabitAnalysisProgressDTO;
+import com.possilives.main.DTO.HabitAnalysisShardDTO;
+import com.possilives.main.DTO.HabitAnalysisSummaryDTO;
+import com.possilives.main.Service.CurrentUserService;
+import com.possilives.main.Service.HabitAnalysisJobService;
 import com.possilives.main.Service.HabitAnalysisService;
 
 import lombok.RequiredArgsConstructor;
@@ -25,37 +35,73 @@ import lombok.RequiredArgsConstructor;
 public class HabitAnalysisController {
     
     private final HabitAnalysisService habitAnalysisService;
-    private final UserRepository userRepository;
+    private final HabitAnalysisJobService habitAnalysisJobService;
+    private final CurrentUserService currentUserService;
     
+    // Starts the analysis in the background; poll /jobs/{jobId} for the result
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/trigger")
-    public ResponseEntity<String> triggerHabitAnalysis(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<?> triggerHabitAnalysis(@AuthenticationPrincipal Jwt jwt) {
         try {
-            String keycloakId = jwt.getSubject();
-            Users user = userRepository.findByKeycloakId(keycloakId)
+            String userId = currentUserService.resolveUserId(jwt.getSubject())
                 .orElseThrow(() -> new RuntimeException("User not found"));
             
-            habitAnalysisService.triggerHabitAnalysisForUser(user.getUser_id());
+            HabitAnalysisJobDTO job = habitAnalysisJobService.submit(userId);
             
-            return ResponseEntity.ok("Habit analysis triggered successfully");
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/habit-analysis/jobs/" + job.getJobId()))
+                .body(job);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error triggering habit analysis: " + e.getMessage());
         }
     }
     
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<HabitAnalysisJobDTO> getJob(@AuthenticationPrincipal Jwt jwt, @PathVariable String jobId) {
+        String userId = currentUserService.resolveUserId(jwt.getSubject()).orElse(null);
+        return habitAnalysisJobService.getJob(jobId)
+            // Job ids are not secrets, so only the owner may see the job
+            .filter(job -> job.getUserId().equals(userId))
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/statistics")
     public ResponseEntity<Map<String, Object>> getHabitStatistics(@AuthenticationPrincipal Jwt jwt) {
         try {
-            String keycloakId = jwt.getSubject();
-            Users user = userRepository.findByKeycloakId(keycloakId)
+            String userId = currentUserService.resolveUserId(jwt.getSubject())
                 .orElseThrow(() -> new RuntimeException("User not found"));
             
-            Map<String, Object> statistics = habitAnalysisService.getHabitStatistics(user.getUser_id());
+            Map<String, Object> statistics = habitAnalysisService.getHabitStatistics(userId);
             
             return ResponseEntity.ok(statistics);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+    
+    // Run details of the whole platform; admins only (see SecurityConfig)
+    @GetMapping("/last-run")
+    public ResponseEntity<HabitAnalysisSummaryDTO> getLastRunSummary() {
+        HabitAnalysisSummaryDTO summary = habitAnalysisService.getLastRunSummary();
+        if (summary == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(summary);
+    }
+    
+    // Progress, rate and ETA of the run currently executing on this node; admins only (see SecurityConfig)
+    @GetMapping("/progress")
+    public ResponseEntity<HabitAnalysisProgressDTO> getProgress() {
+        return ResponseEntity.ok(habitAnalysisService.getProgress());
+    }
+    
+    // Shard records of one scheduled run, with their owners and checkpoints; admins only (see SecurityConfig)
+    @GetMapping("/runs")
+    public ResponseEntity<List<HabitAnalysisShardDTO>> getRunShards(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime slot) {
+        return ResponseEntity.ok(habitAnalysisService.getRunShards(slot));
+    }
 }
@@ -46,9 +46,13 @@ public class HabitController {
     return ResponseEntity.ok(habitService.getAllHabits());
   }
 
+  // /recommended/{userId}?page=0&size=20
   @GetMapping("/recommended/{userId}")
-  public ResponseEntity<List<Habit>> getRecommendedHabits(@PathVariable String userId) {
-    return ResponseEntity.ok(habitService.getRecommendedHabits(userId));
+  public ResponseEntity<List<Habit>> getRecommendedHabits(
+      @PathVariable String userId,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size) {
+    return ResponseEntity.ok(habitService.getRecommendedHabits(userId, page, size));
   }
 
   @PostMapping
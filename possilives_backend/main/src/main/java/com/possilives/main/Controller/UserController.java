@@ -3,8 +3,12 @@ package com.possilives.main.Controller;
 import com.possilives.main.DTO.PersonalityUpdateDTO;
 import com.possilives.main.DTO.ProfileUpdateDTO;
 import com.possilives.main.DTO.UserDTO;
-import com.possilives.main.Model.Personality;
+import com.possilives.main.DTO.UserPageDTO;
+import com.possilives.main.DTO.UserProfileDTO;
+import com.possilives.main.DTO.UserProfileDTO.Section;
 import com.possilives.main.Model.Users;
+import com.possilives.main.Service.RecommendationCache;
+import com.possilives.main.Service.UserActivityService;
 import com.possilives.main.Service.UserService;
 
 import jakarta.validation.Valid;
@@ -15,8 +19,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
-import java.util.List;
+import java.util.EnumSet;
 import java.util.Optional;
 
 @RestController
@@ -25,6 +28,8 @@ import java.util.Optional;
 @CrossOrigin("*")
 public class UserController {
     private final UserService userService;
+    private final UserActivityService userActivityService;
+    private final RecommendationCache recommendationCache;
 
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/initUser")
@@ -44,14 +49,14 @@ public class UserController {
 
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/createuser")
-    public ResponseEntity<Users> createUser(@Valid @RequestBody UserDTO userDTO) {
+    public ResponseEntity<UserProfileDTO> createUser(@Valid @RequestBody UserDTO userDTO) {
         Optional<Users> user = userService.getUserById(userDTO.getUserId());
         user.get().setEmail(userDTO.getEmail());
         // user.get().setPassword(userDTO.getPassword());
 
         // Verification code
         // user.setVerification_code(generateVerificationCode());
-        return ResponseEntity.ok(userService.createUser(user.get()));
+        return ResponseEntity.ok(UserProfileDTO.of(userService.createUser(user.get()), EnumSet.noneOf(Section.class)));
     }
 
     // /verify?userId=<userIdValue>&verificationCode=<verificationCodeValue>
@@ -64,62 +69,48 @@ public class UserController {
         return ResponseEntity.badRequest().body("Invalid verification code");
     }
 
+    // fields: comma separated collections to include (personalities, user_habits, generations), all by default
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/getUser")
-    public ResponseEntity<Users> getUser(@AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<UserProfileDTO> getUser(@AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) String fields) {
         String userId = jwt.getSubject();
-        return userService.getUserbyKeycoakId(userId)
+        return userService.getProfile(userId, UserProfileDTO.Section.parse(fields))
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // /api/users?afterId=<nextAfterId of the previous page>&limit=50
     @GetMapping
-    public ResponseEntity<List<Users>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<UserPageDTO> getAllUsers(
+            @RequestParam(defaultValue = "") String afterId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(userService.getUserPage(afterId, limit));
     }
 
     @PutMapping("/{userId}/profile")
-    public ResponseEntity<Users> updateProfile(
+    public ResponseEntity<UserProfileDTO> updateProfile(
             @PathVariable String userId,
             @RequestBody ProfileUpdateDTO profileDTO) {
-        Users user = userService.getUserById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        user.setUsername(profileDTO.getUsername());
-        user.setAge(profileDTO.getAge());
-        user.setCurrent_career(profileDTO.getCurrent_career());
-        user.setFuture_career(profileDTO.getFuture_career());
-        user.setRelationship_status(profileDTO.getRelationship_status());
-        user.setSocial_circle(profileDTO.getSocial_circle());
-
-        return ResponseEntity.ok(userService.updateUser(user));
+        return ResponseEntity.ok(userService.updateProfile(userId, profileDTO));
     }
 
 
     @PutMapping("/{userId}/personality")
-    public ResponseEntity<Users> updatePersonality(
+    public ResponseEntity<UserProfileDTO> updatePersonality(
             @PathVariable String userId,
             @RequestBody PersonalityUpdateDTO personalityDTO) {
-        Users user = userService.getUserById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Personality personality = new Personality();
-        personality.setPersonalityUser(user);
-        personality.setOpenness(personalityDTO.getOpenness());
-        personality.setConscientiousness(personalityDTO.getConscientiousness());
-        personality.setExtraversion(personalityDTO.getExtraversion());
-        personality.setAgreeableness(personalityDTO.getAgreeableness());
-        personality.setNeuroticism(personalityDTO.getNeuroticism());
-        personality.setCreatedAt(LocalDate.now());
-
-        user.getPersonalities().add(personality);
-        return ResponseEntity.ok(userService.updateUser(user));
+        UserProfileDTO updated = userService.addPersonality(userId, personalityDTO);
+        userActivityService.markDirty(userId);
+        recommendationCache.invalidateAfterCommit(userId);
+        return ResponseEntity.ok(updated);
     }
 
     //Delete Account
     @DeleteMapping("/{userId}")
     public ResponseEntity<String> deleteUser(@PathVariable String userId) {
         userService.deleteUser(userId);
+        recommendationCache.invalidateAfterCommit(userId);
         return ResponseEntity.ok("User deleted successfully");
     }
 }
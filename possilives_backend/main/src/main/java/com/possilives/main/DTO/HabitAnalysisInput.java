@@ -0,0 +1,29 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Everything the habit analysis prompt needs for one user. Loaded for a whole chunk of users
+// at once by HabitAnalysisInputLoader instead of through the Users entity graph
+public record HabitAnalysisInput(
+    String userId,
+    // Latest personality, null when the user has none
+    PersonalityScores personality,
+    List<HabitLine> habits,
+    // Newest first
+    List<HabitChange> changes) {
+
+  public record PersonalityScores(
+      Double openness,
+      Double conscientiousness,
+      Double extraversion,
+      Double agreeableness,
+      Double neuroticism) {
+  }
+
+  public record HabitLine(String title, Integer impactRating, Double averageImpact) {
+  }
+
+  public record HabitChange(LocalDateTime changedAt, String action, String habitTitle, Integer newImpact) {
+  }
+}
@@ -0,0 +1,26 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+@Data
+public class HabitAnalysisJobDTO {
+  public enum Status {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+
+  String jobId;
+  String userId;
+  volatile Status status;
+  // HabitAnalysisService.AnalysisOutcome of a finished job
+  volatile String outcome;
+  volatile String error;
+
+  LocalDateTime createdAt;
+  volatile LocalDateTime startedAt;
+  volatile LocalDateTime finishedAt;
+}
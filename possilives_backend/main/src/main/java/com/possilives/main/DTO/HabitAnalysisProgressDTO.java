@@ -0,0 +1,34 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+// Live progress of the habit analysis run on the node that answers the request
+@Data
+public class HabitAnalysisProgressDTO {
+  Boolean running;
+  String nodeId;
+  LocalDateTime startedAt;
+
+  // Scheduled slot and shard this node is working on
+  LocalDateTime slot;
+  String currentShard;
+  Long shardUsersTotal;
+  Long shardUsersDone;
+
+  // Shards of the slot across all nodes
+  Integer slotShards;
+  Integer slotShardsCompleted;
+
+  Integer usersProcessed;
+  Integer notified;
+  Integer skipped;
+  Integer failed;
+
+  Double ratePerSecond;
+  // Time to finish the slot at this node's rate, assuming shards of equal size and no help
+  // from other nodes; an upper bound when several nodes share the slot
+  Long etaSeconds;
+  LocalDateTime estimatedFinishAt;
+}
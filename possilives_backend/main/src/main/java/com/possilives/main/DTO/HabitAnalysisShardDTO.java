@@ -0,0 +1,54 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDateTime;
+
+import com.possilives.main.Model.HabitAnalysisShard;
+
+import lombok.Data;
+
+// One shard of a scheduled run as the runs endpoint reports it
+@Data
+public class HabitAnalysisShardDTO {
+  String shardId;
+  LocalDateTime slot;
+  Integer shardIndex;
+
+  // Exclusive user id bounds
+  String lowerBound;
+  String upperBound;
+  Boolean fullRefresh;
+
+  // Node holding the lease, and until when
+  String owner;
+  LocalDateTime leaseExpiresAt;
+
+  // Last user of the checkpoint and the counts up to it
+  String lastUserId;
+  Integer processedCount;
+  Integer notifiedCount;
+  Integer failedCount;
+  LocalDateTime checkpointedAt;
+
+  LocalDateTime createdAt;
+  LocalDateTime completedAt;
+
+  public static HabitAnalysisShardDTO of(HabitAnalysisShard shard) {
+    HabitAnalysisShardDTO dto = new HabitAnalysisShardDTO();
+    dto.setShardId(shard.getShard_id());
+    dto.setSlot(shard.getSlot());
+    dto.setShardIndex(shard.getShardIndex());
+    dto.setLowerBound(shard.getLowerBound());
+    dto.setUpperBound(shard.getUpperBound());
+    dto.setFullRefresh(shard.getFullRefresh());
+    dto.setOwner(shard.getOwner());
+    dto.setLeaseExpiresAt(shard.getLeaseExpiresAt());
+    dto.setLastUserId(shard.getLastUserId());
+    dto.setProcessedCount(shard.getProcessedCount());
+    dto.setNotifiedCount(shard.getNotifiedCount());
+    dto.setFailedCount(shard.getFailedCount());
+    dto.setCheckpointedAt(shard.getCheckpointedAt());
+    dto.setCreatedAt(shard.getCreatedAt());
+    dto.setCompletedAt(shard.getCompletedAt());
+    return dto;
+  }
+}
@@ -0,0 +1,35 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+@Data
+public class HabitAnalysisSummaryDTO {
+  LocalDateTime startedAt;
+  LocalDateTime finishedAt;
+
+  // Node that produced this summary and the shards it finished
+  String nodeId;
+  Integer shardsCompleted;
+
+  // "parallel" or "sequential"
+  String mode;
+  Integer maxInFlight;
+  // false when only users with recent activity were analyzed in every shard
+  Boolean fullRefresh;
+
+  Integer usersProcessed;
+  Integer notified;
+  Integer skipped;
+  Integer failed;
+
+  // Users whose analysis input matched their last analysis
+  Integer unchanged;
+  Integer reused;
+  Double skipReuseRatio;
+
+  Long wallClockMillis;
+  Double throughputPerSecond;
+  Long peakHeapUsedBytes;
+}
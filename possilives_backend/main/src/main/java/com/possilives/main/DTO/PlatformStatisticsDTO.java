@@ -0,0 +1,27 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDate;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Platform-wide activity of one day
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlatformStatisticsDTO {
+  @NotNull
+  LocalDate date;
+
+  // Users with at least one audited action that day
+  @NotNull
+  Long activeUsers;
+
+  @NotNull
+  Long habitsCreated;
+
+  @NotNull
+  Long futuresGenerated;
+}
@@ -0,0 +1,7 @@
+package com.possilives.main.DTO;
+
+import java.util.List;
+
+// A keyset page of users. Pass nextAfterId back as afterId for the next page; null on the last one
+public record UserPageDTO(List<UserSummaryDTO> users, String nextAfterId) {
+}
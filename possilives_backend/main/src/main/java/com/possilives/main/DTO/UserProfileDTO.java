@@ -0,0 +1,68 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.possilives.main.Model.Generations;
+import com.possilives.main.Model.Personality;
+import com.possilives.main.Model.User_Habits;
+import com.possilives.main.Model.Users;
+
+// What getUser returns: the profile fields of Users (no verification code, ban or login data)
+// and the collections that were asked for. Collections that were not asked for are left out
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserProfileDTO(
+    String user_id,
+    String email,
+    String username,
+    Integer age,
+    String current_career,
+    String future_career,
+    String relationship_status,
+    String social_circle,
+    Boolean is_verified,
+    LocalDate createdAt,
+    Integer gen_credits,
+    Integer max_credits,
+    List<Personality> personalities,
+    List<User_Habits> user_habits,
+    List<Generations> generations) {
+
+  public enum Section {
+    PERSONALITIES,
+    USER_HABITS,
+    GENERATIONS;
+
+    // Comma separated section names as in the JSON ("personalities,generations"); all when blank
+    public static Set<Section> parse(String fields) {
+      if (fields == null || fields.isBlank()) {
+        return EnumSet.allOf(Section.class);
+      }
+      Set<Section> sections = EnumSet.noneOf(Section.class);
+      for (String field : fields.split(",")) {
+        if (!field.isBlank()) {
+          try {
+            sections.add(valueOf(field.trim().toUpperCase(Locale.ROOT)));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown profile field: " + field.trim());
+          }
+        }
+      }
+      return sections;
+    }
+  }
+
+  // Only reads the collections in sections, so the others stay unloaded
+  public static UserProfileDTO of(Users user, Set<Section> sections) {
+    return new UserProfileDTO(user.getUser_id(), user.getEmail(), user.getUsername(), user.getAge(),
+        user.getCurrent_career(), user.getFuture_career(), user.getRelationship_status(), user.getSocial_circle(),
+        user.getIs_verified(), user.getCreatedAt(), user.getGen_credits(), user.getMax_credits(),
+        sections.contains(Section.PERSONALITIES) ? user.getPersonalities() : null,
+        sections.contains(Section.USER_HABITS) ? user.getUser_habits() : null,
+        sections.contains(Section.GENERATIONS) ? user.getGenerations() : null);
+  }
+}
@@ -0,0 +1,14 @@
+package com.possilives.main.DTO;
+
+import java.time.LocalDate;
+
+// One row of the user list, selected straight into this record (no entity, no collections).
+// Component names follow the Users JSON fields
+public record UserSummaryDTO(
+    String user_id,
+    String username,
+    String email,
+    Boolean is_verified,
+    Boolean is_banned,
+    LocalDate createdAt) {
+}
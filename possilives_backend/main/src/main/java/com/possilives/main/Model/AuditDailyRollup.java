@@ -0,0 +1,62 @@
+package com.possilives.main.Model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Audit log counts per user, day, action and target. Kept up to date by AuditLogWriter and
+// rebuilt from auditlog by AuditRollupService, so statistics don't scan raw audit rows
+@Data
+@Entity
+@Table(name = "audit_daily_rollup", indexes = {
+    @Index(name = "idx_audit_daily_rollup_date", columnList = "log_date")
+})
+@IdClass(AuditDailyRollup.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditDailyRollup {
+  @Id
+  private String user_id;
+
+  @Id
+  private LocalDate logDate;
+
+  @Id
+  @Enumerated(EnumType.STRING)
+  private ACTION_TYPES action;
+
+  @Id
+  @Enumerated(EnumType.STRING)
+  private TARGET_TYPES target;
+
+  private long eventCount;
+
+  // Sum and count of the non-null habit_impact values, for averages over any range of days
+  private long impactSum;
+  private long impactCount;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String user_id;
+    private LocalDate logDate;
+    private ACTION_TYPES action;
+    private TARGET_TYPES target;
+  }
+}
@@ -13,6 +13,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -21,7 +22,11 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
-@Table(name = "auditlog")
+@Table(name = "auditlog", indexes = {
+    @Index(name = "idx_auditlog_target_id", columnList = "target_id"),
+    @Index(name = "idx_auditlog_user_created", columnList = "audit_by_user_id, created_at"),
+    @Index(name = "idx_auditlog_created_id", columnList = "created_at, auditlog_id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class AuditLog {
@@ -35,6 +40,10 @@ public class AuditLog {
   //Method Signature
   private String signature;
 
+  // Id of the affected entity (e.g. user_habits_id), when the audited method exposes one
+  @Column(name = "target_id")
+  private String targetId;
+
   @Enumerated(EnumType.STRING)
   private ACTION_TYPES action;
   private LocalDateTime createdAt;
@@ -56,7 +65,7 @@ public class AuditLog {
 
   @Override
   public String toString() {
-    return "AuditLog [auditlog_id=" + auditlog_id + ", target=" + target + ", signature=" + signature + ", action="
+    return "AuditLog [auditlog_id=" + auditlog_id + ", target=" + target + ", signature=" + signature + ", targetId=" + targetId + ", action="
         + action + ", createdAt=" + createdAt + ", habit_impact=" + habit_impact + ", auditBy=" + auditBy.getUser_id() + "]";
   }
 }
\ No newline at end of file
@@ -3,6 +3,9 @@ package com.possilives.main.Model;
 import java.util.Date;
 import java.util.List;
 
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.CascadeType;
@@ -41,7 +44,8 @@ public class Generations {
   @Column(name = "modifiedAt", nullable = false)
   private Date modifiedAt = new Date();
 
-  
+  // One query for the images of all generations loaded together, not one per generation
+  @Fetch(FetchMode.SUBSELECT)
   @OneToMany(mappedBy = "imageGeneration", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
   private List<Image> images;
 
@@ -3,9 +3,12 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 @Data
 @Entity
@@ -21,11 +24,15 @@ public class Habit {
     private String description;
 
     // Add more fields as needed
+    // Loaded for all habits of a query at once, not one query per habit
+    @Fetch(FetchMode.SUBSELECT)
     @OneToMany(mappedBy = "linkedHabit", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
     private List<Big_Five> traits;
 
+    // Lazy: loading a habit must not load every user who picked it
     @JsonIgnore
-    @OneToMany(mappedBy = "habit", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "habit", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<User_Habits> user_habits;
 
     public String getHabit_id() {
@@ -75,7 +82,6 @@ public class Habit {
                 ", title='" + title + '\'' +
                 ", description='" + description + '\'' +
                 ", traits=" + traits +
-                ", user_habits=" + user_habits.stream().map(u_h -> u_h.getUser_habits_id()).collect(Collectors.toList()) +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.possilives.main.Model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One user-id range of a scheduled habit analysis run. Backend nodes claim shards through a
+// time-limited lease, so every shard of a slot is analyzed by exactly one node at a time
+@Data
+@Entity
+@Table(name = "habit_analysis_shard")
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitAnalysisShard {
+  // <slot>#<shardIndex>
+  @Id
+  private String shard_id;
+
+  // Scheduled fire time the shard belongs to
+  private LocalDateTime slot;
+  private Integer shardIndex;
+
+  // Exclusive user id bounds; the last shard of a slot has no upper bound (null)
+  private String lowerBound;
+  private String upperBound;
+
+  private Boolean fullRefresh;
+
+  private String owner;
+  private LocalDateTime leaseExpiresAt;
+
+  // Checkpoint: every user up to and including lastUserId has finished, so a node that
+  // takes over the shard resumes right after it
+  private String lastUserId;
+  private Integer processedCount;
+  private Integer notifiedCount;
+  private Integer failedCount;
+  private LocalDateTime checkpointedAt;
+
+  private LocalDateTime createdAt;
+  private LocalDateTime completedAt;
+}
@@ -0,0 +1,34 @@
+package com.possilives.main.Model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Last habit analysis result and activity watermark per user, used to skip users whose analysis input has not changed
+@Data
+@Entity
+@Table(name = "habit_analysis_state")
+@NoArgsConstructor
+@AllArgsConstructor
+public class HabitAnalysisState {
+  @Id
+  private String user_id;
+
+  // SHA-256 of the assembled analysis input
+  @Column(length = 64)
+  private String inputFingerprint;
+
+  @Column(columnDefinition = "TEXT")
+  private String lastRecommendation;
+
+  private LocalDateTime analyzedAt;
+
+  // Latest write to data that feeds the analysis (habits, impact ratings, personality)
+  private LocalDateTime lastActivityAt;
+}
@@ -2,19 +2,34 @@ package com.possilives.main.Model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+// All collections are lazy; each use case loads the ones it needs through the entity graphs
+// below (see UserRepository). An entity graph can fetch only one of these lists at a time
 @Data
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(name = Users.WITH_PERSONALITIES, attributeNodes = @NamedAttributeNode("personalities"))
+@NamedEntityGraph(name = Users.WITH_HABITS,
+    attributeNodes = @NamedAttributeNode(value = "user_habits", subgraph = "habit"),
+    subgraphs = @NamedSubgraph(name = "habit", attributeNodes = @NamedAttributeNode("habit")))
+@NamedEntityGraph(name = Users.WITH_GENERATIONS, attributeNodes = @NamedAttributeNode("generations"))
+@NamedEntityGraph(name = Users.WITH_NOTIFICATIONS, attributeNodes = @NamedAttributeNode("recievedNotificationList"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Users {
+    public static final String WITH_PERSONALITIES = "Users.personalities";
+    public static final String WITH_HABITS = "Users.habits";
+    public static final String WITH_GENERATIONS = "Users.generations";
+    public static final String WITH_NOTIFICATIONS = "Users.notifications";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private String user_id;
@@ -51,23 +66,45 @@ public class Users {
     @Column(name = "max_credits", nullable = false)
     private Integer max_credits = 10;
 
+    // Bumped with every change to the user's personalities or habits, see
+    // UserRepository.bumpRecommendationVersion. Never written by entity updates, so a stale copy
+    // of the user can't roll it back
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Long recommendationVersion;
+
     // Add more fields as needed
-    @OneToMany(mappedBy = "personalityUser", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "personalityUser", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Personality> personalities;
 
-    @OneToMany(mappedBy = "habitUser", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "habitUser", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<User_Habits> user_habits;
 
-    @OneToMany(mappedBy = "generatedBy", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "generatedBy", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Generations> generations;
 
-    @OneToMany(mappedBy = "sender", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    // Notifications are served by /api/notifications, not as part of the user
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "sender", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Notifications> sentNotificationsList;
 
-    @OneToMany(mappedBy = "reciever", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "reciever", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Notifications> recievedNotificationList;
     
     @JsonIgnore
-    @OneToMany(mappedBy = "auditBy", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "auditBy", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<AuditLog> auditLogs;
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.possilives.main.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import com.possilives.main.Model.AuditDailyRollup;
+
+import jakarta.persistence.QueryHint;
+
+public interface AuditDailyRollupRepository extends JpaRepository<AuditDailyRollup, AuditDailyRollup.Key> {
+  // Same row shape as the old DATE_TRUNC aggregation over auditlog: date, action, target, count, avg impact.
+  // Ranges are resolved to whole days: every day from startTime's day up to the day before endTime.
+  // Ordered by date and read through a cursor; must be consumed inside a transaction
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query(value = "SELECT CAST(r.log_date AS timestamp), r.action, r.target, r.event_count, " +
+               "CASE WHEN r.impact_count > 0 THEN CAST(r.impact_sum AS double precision) / r.impact_count END " +
+               "FROM audit_daily_rollup r " +
+               "WHERE r.user_id = :userId " +
+               "AND r.log_date >= CAST(:startTime AS date) " +
+               "AND CAST(r.log_date AS timestamp) < :endTime " +
+               "ORDER BY r.log_date",
+       nativeQuery = true)
+  Stream<Object[]> streamDailyRollups(String userId, LocalDateTime startTime, LocalDateTime endTime);
+
+  // Holds the writer's upserts back until the rebuild commits, while analytics keep reading.
+  // Writer transactions that already upserted are waited for, so the rebuild sees their auditlog rows
+  @Modifying
+  @Query(value = "LOCK TABLE audit_daily_rollup IN EXCLUSIVE MODE", nativeQuery = true)
+  void lockForRebuild();
+
+  // Reads are mostly counted without an auditlog row (audit.policy.read), so their rollup rows
+  // can only be rebuilt from auditlog when the table starts out empty
+  @Modifying
+  @Query(value = "DELETE FROM audit_daily_rollup WHERE log_date >= :fromDate " +
+               "AND (:includeReads OR action <> 'R')", nativeQuery = true)
+  int deleteFrom(LocalDate fromDate, boolean includeReads);
+
+  // Recomputes the rollups of all days from fromDate on, after deleteFrom under lockForRebuild
+  @Modifying
+  @Query(value = "INSERT INTO audit_daily_rollup (user_id, log_date, action, target, event_count, impact_sum, impact_count) " +
+               "SELECT a.audit_by_user_id, CAST(a.created_at AS date), a.action, a.target, COUNT(*), " +
+               "COALESCE(SUM(a.habit_impact), 0), COUNT(a.habit_impact) " +
+               "FROM auditlog a " +
+               "WHERE a.created_at >= CAST(:fromDate AS timestamp) " +
+               "AND a.audit_by_user_id IS NOT NULL AND a.action IS NOT NULL AND a.target IS NOT NULL " +
+               "AND (:includeReads OR a.action <> 'R') " +
+               "GROUP BY a.audit_by_user_id, CAST(a.created_at AS date), a.action, a.target",
+       nativeQuery = true)
+  int rebuildFrom(LocalDate fromDate, boolean includeReads);
+
+  // Platform-wide figures per day of [fromDate, toDate): date, active users, habits created,
+  // futures generated. Days without any audited action have no row
+  @Query(value = "SELECT r.log_date, COUNT(DISTINCT r.user_id), " +
+               "COALESCE(SUM(r.event_count) FILTER (WHERE r.action = 'C' AND r.target = 'USERHABIT'), 0), " +
+               "COALESCE(SUM(r.event_count) FILTER (WHERE r.action = 'C' AND r.target = 'GENERATION'), 0) " +
+               "FROM audit_daily_rollup r " +
+               "WHERE r.log_date >= :fromDate AND r.log_date < :toDate " +
+               "GROUP BY r.log_date " +
+               "ORDER BY r.log_date",
+       nativeQuery = true)
+  List<Object[]> aggregatePlatformDays(LocalDate fromDate, LocalDate toDate);
+}
@@ -1,26 +1,25 @@
 package com.possilives.main.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.possilives.main.Model.AuditLog;
 
-public interface AuditLogRepository extends JpaRepository<AuditLog, String> {  @Query(value = "SELECT DATE_TRUNC('day', a.created_at) as date, a.action, a.target, " +
-               "COUNT(*) as count, AVG(a.habit_impact) as avg_influence " +
-               "FROM auditlog a " +
-               "WHERE a.audit_by_user_id = :userId " +
-               "AND a.created_at BETWEEN :startTime AND :endTime " +
-               "GROUP BY DATE_TRUNC('day', a.created_at), a.action, a.target", 
-       nativeQuery = true)
-  List<Object[]> getAuditLogAggregation(String userId, LocalDateTime startTime, LocalDateTime endTime);
+import jakarta.persistence.QueryHint;
+
+public interface AuditLogRepository extends JpaRepository<AuditLog, String> {
   @Query(value = "SELECT CAST(a.created_at AS timestamp), a.action, " +
-               "CASE WHEN a.target = 'USERHABIT' THEN h.title ELSE 'Unknown' END as habit_title, " +
+               "COALESCE(h.title, 'Unknown') as habit_title, " +
                "a.habit_impact " +
                "FROM auditlog a " +
-               "LEFT JOIN user_habits uh ON a.signature LIKE '%' || uh.user_habits_id || '%' " +
+               "LEFT JOIN user_habits uh ON uh.user_habits_id = a.target_id " +
                "LEFT JOIN habit h ON uh.habit_habit_id = h.habit_id " +
                "WHERE a.audit_by_user_id = :userId " +
                "AND a.created_at >= :startTime " +
@@ -28,4 +27,36 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, String> {  @
                "ORDER BY a.created_at DESC", 
        nativeQuery = true)
   List<Object[]> getHabitChangesForUser(String userId, LocalDateTime startTime);
+  // getHabitChangesForUser for a chunk of users, prefixed with the user id
+  @Query(value = "SELECT a.audit_by_user_id, CAST(a.created_at AS timestamp), a.action, " +
+               "COALESCE(h.title, 'Unknown') as habit_title, " +
+               "a.habit_impact " +
+               "FROM auditlog a " +
+               "LEFT JOIN user_habits uh ON uh.user_habits_id = a.target_id " +
+               "LEFT JOIN habit h ON uh.habit_habit_id = h.habit_id " +
+               "WHERE a.audit_by_user_id IN (:userIds) " +
+               "AND a.created_at >= :startTime " +
+               "AND a.target IN ('USERHABIT', 'INFLUENCE') " +
+               "ORDER BY a.audit_by_user_id, a.created_at DESC", 
+       nativeQuery = true)
+  List<Object[]> getHabitChangesForUsers(Collection<String> userIds, LocalDateTime startTime);
+
+  // Raw rows for export, in the column order of the partition archives, ordered by
+  // (created_at, auditlog_id) and starting after the given key, so an interrupted export
+  // resumes from its last row instead of re-reading an OFFSET. A null userId exports all users.
+  // Read through a cursor; must be consumed inside a transaction
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query(value = "SELECT a.auditlog_id, a.target, a.signature, a.target_id, a.action, " +
+               "CAST(a.created_at AS timestamp), a.habit_impact, a.audit_by_user_id " +
+               "FROM auditlog a " +
+               "WHERE (CAST(:userId AS varchar) IS NULL OR a.audit_by_user_id = :userId) " +
+               "AND a.created_at >= :startTime AND a.created_at < :endTime " +
+               "AND (a.created_at, a.auditlog_id) > (:afterCreatedAt, :afterId) " +
+               "ORDER BY a.created_at, a.auditlog_id",
+       nativeQuery = true)
+  Stream<Object[]> streamForExport(String userId, LocalDateTime startTime, LocalDateTime endTime,
+      LocalDateTime afterCreatedAt, String afterId);
 }
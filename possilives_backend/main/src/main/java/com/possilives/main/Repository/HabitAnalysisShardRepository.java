@@ -0,0 +1,73 @@
+package com.possilives.main.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.possilives.main.Model.HabitAnalysisShard;
+
+public interface HabitAnalysisShardRepository extends JpaRepository<HabitAnalysisShard, String> {
+  // Every node tries to create the shards of a slot; the first insert wins
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO habit_analysis_shard (shard_id, slot, shard_index, lower_bound, upper_bound, full_refresh, created_at) " +
+               "VALUES (:shardId, :slot, :shardIndex, :lowerBound, :upperBound, :fullRefresh, :createdAt) " +
+               "ON CONFLICT (shard_id) DO NOTHING",
+       nativeQuery = true)
+  int createShard(String shardId, LocalDateTime slot, Integer shardIndex, String lowerBound, String upperBound,
+      Boolean fullRefresh, LocalDateTime createdAt);
+
+  // Atomic claim: succeeds only for unfinished shards that are unowned or whose lease expired
+  @Modifying
+  @Transactional
+  @Query(value = "UPDATE habit_analysis_shard SET owner = :owner, lease_expires_at = :leaseExpiresAt " +
+               "WHERE shard_id = :shardId AND completed_at IS NULL " +
+               "AND (owner IS NULL OR lease_expires_at < :now)",
+       nativeQuery = true)
+  int claim(String shardId, String owner, LocalDateTime now, LocalDateTime leaseExpiresAt);
+
+  // Extends the lease and records the checkpoint in the same statement
+  @Modifying
+  @Transactional
+  @Query(value = "UPDATE habit_analysis_shard SET lease_expires_at = :leaseExpiresAt, last_user_id = :lastUserId, " +
+               "processed_count = :processedCount, notified_count = :notifiedCount, failed_count = :failedCount, " +
+               "checkpointed_at = :checkpointedAt " +
+               "WHERE shard_id = :shardId AND owner = :owner AND completed_at IS NULL",
+       nativeQuery = true)
+  int renew(String shardId, String owner, LocalDateTime leaseExpiresAt, String lastUserId,
+      Integer processedCount, Integer notifiedCount, Integer failedCount, LocalDateTime checkpointedAt);
+
+  // Records the checkpoint and gives the shard up so that any node can claim it right away
+  @Modifying
+  @Transactional
+  @Query(value = "UPDATE habit_analysis_shard SET owner = NULL, lease_expires_at = NULL, last_user_id = :lastUserId, " +
+               "processed_count = :processedCount, notified_count = :notifiedCount, failed_count = :failedCount, " +
+               "checkpointed_at = :checkpointedAt " +
+               "WHERE shard_id = :shardId AND owner = :owner AND completed_at IS NULL",
+       nativeQuery = true)
+  int release(String shardId, String owner, String lastUserId,
+      Integer processedCount, Integer notifiedCount, Integer failedCount, LocalDateTime checkpointedAt);
+
+  @Modifying
+  @Transactional
+  @Query(value = "UPDATE habit_analysis_shard SET completed_at = :completedAt, lease_expires_at = NULL, " +
+               "last_user_id = :lastUserId, processed_count = :processedCount, notified_count = :notifiedCount, " +
+               "failed_count = :failedCount, checkpointed_at = :completedAt " +
+               "WHERE shard_id = :shardId AND owner = :owner",
+       nativeQuery = true)
+  int complete(String shardId, String owner, LocalDateTime completedAt, String lastUserId,
+      Integer processedCount, Integer notifiedCount, Integer failedCount);
+
+  @Query("SELECT s FROM HabitAnalysisShard s WHERE s.completedAt IS NULL AND s.slot >= :since " +
+         "AND (s.owner IS NULL OR s.leaseExpiresAt < :now) ORDER BY s.slot, s.shardIndex")
+  List<HabitAnalysisShard> findClaimable(LocalDateTime since, LocalDateTime now);
+
+  List<HabitAnalysisShard> findBySlotOrderByShardIndex(LocalDateTime slot);
+
+  @Query("SELECT MAX(s.slot) FROM HabitAnalysisShard s WHERE s.fullRefresh = true")
+  LocalDateTime findLastFullRefreshSlot();
+}
@@ -0,0 +1,33 @@
+package com.possilives.main.Repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.possilives.main.Model.HabitAnalysisState;
+
+public interface HabitAnalysisStateRepository extends JpaRepository<HabitAnalysisState, String> {
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO habit_analysis_state (user_id, last_activity_at) VALUES (:userId, :activityAt) " +
+               "ON CONFLICT (user_id) DO UPDATE SET last_activity_at = " +
+               "GREATEST(habit_analysis_state.last_activity_at, EXCLUDED.last_activity_at)",
+       nativeQuery = true)
+  void recordActivity(String userId, LocalDateTime activityAt);
+
+  // Writes the analysis columns only, so a concurrently recorded activity is never overwritten.
+  // Null fingerprint/recommendation keep the stored values
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO habit_analysis_state (user_id, input_fingerprint, last_recommendation, analyzed_at) " +
+               "VALUES (:userId, :inputFingerprint, :recommendation, :analyzedAt) " +
+               "ON CONFLICT (user_id) DO UPDATE SET " +
+               "input_fingerprint = COALESCE(EXCLUDED.input_fingerprint, habit_analysis_state.input_fingerprint), " +
+               "last_recommendation = COALESCE(EXCLUDED.last_recommendation, habit_analysis_state.last_recommendation), " +
+               "analyzed_at = EXCLUDED.analyzed_at",
+       nativeQuery = true)
+  void recordAnalysis(String userId, String inputFingerprint, String recommendation, LocalDateTime analyzedAt);
+}
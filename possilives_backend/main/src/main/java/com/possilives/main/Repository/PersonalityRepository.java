@@ -1,7 +1,21 @@
 package com.possilives.main.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import com.possilives.main.Model.Personality;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface PersonalityRepository extends JpaRepository<Personality, String> {
+  // Latest personality scores of each user: user id, openness, conscientiousness, extraversion,
+  // agreeableness, neuroticism. Same-day personalities fall back to the highest id, in byte order,
+  // the same rule UserHabitService uses
+  @Query(value = "SELECT DISTINCT ON (p.personality_user_user_id) p.personality_user_user_id, " +
+               "p.openness, p.conscientiousness, p.extraversion, p.agreeableness, p.neuroticism " +
+               "FROM personality p " +
+               "WHERE p.personality_user_user_id IN (:userIds) " +
+               "ORDER BY p.personality_user_user_id, p.created_at DESC NULLS LAST, p.personality_id COLLATE \"C\" DESC",
+       nativeQuery = true)
+  List<Object[]> findLatestScoresForUsers(Collection<String> userIds);
 }
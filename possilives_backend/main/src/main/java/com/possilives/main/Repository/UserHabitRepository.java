@@ -1,7 +1,19 @@
 package com.possilives.main.Repository;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.possilives.main.Model.User_Habits;
 
 public interface UserHabitRepository extends JpaRepository<User_Habits, String> {
+  // Habits of each user: user id, habit title, impact rating, average impact
+  @Query(value = "SELECT uh.habit_user_user_id, h.title, uh.impact_rating, uh.average_impact " +
+               "FROM user_habits uh " +
+               "JOIN habit h ON uh.habit_habit_id = h.habit_id " +
+               "WHERE uh.habit_user_user_id IN (:userIds) " +
+               "ORDER BY uh.habit_user_user_id, uh.created_at, uh.user_habits_id",
+       nativeQuery = true)
+  List<Object[]> findHabitLinesForUsers(Collection<String> userIds);
 }
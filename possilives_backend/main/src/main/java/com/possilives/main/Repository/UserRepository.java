@@ -1,11 +1,79 @@
 package com.possilives.main.Repository;
 
+import com.possilives.main.DTO.UserSummaryDTO;
 import com.possilives.main.Model.Users;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<Users, String> {
     Optional<Users> findByEmail(String email);
     Optional<Users> findByKeycloakId(String keycloakId);
-}
\ No newline at end of file
+
+    // The user with one of its collections loaded in the same query, per use case
+    @EntityGraph(Users.WITH_PERSONALITIES)
+    @Query("SELECT u FROM Users u WHERE u.user_id = :userId")
+    Optional<Users> findWithPersonalitiesById(String userId);
+
+    @EntityGraph(Users.WITH_PERSONALITIES)
+    @Query("SELECT u FROM Users u WHERE u.keycloakId = :keycloakId")
+    Optional<Users> findWithPersonalitiesByKeycloakId(String keycloakId);
+
+    @EntityGraph(Users.WITH_HABITS)
+    @Query("SELECT u FROM Users u WHERE u.user_id = :userId")
+    Optional<Users> findWithHabitsById(String userId);
+
+    @EntityGraph(Users.WITH_GENERATIONS)
+    @Query("SELECT u FROM Users u WHERE u.keycloakId = :keycloakId")
+    Optional<Users> findWithGenerationsByKeycloakId(String keycloakId);
+
+    @EntityGraph(Users.WITH_NOTIFICATIONS)
+    @Query("SELECT u FROM Users u WHERE u.user_id = :userId")
+    Optional<Users> findWithNotificationsById(String userId);
+
+    // Id only, for callers that just need to know who is calling
+    @Query("SELECT u.user_id FROM Users u WHERE u.keycloakId = :keycloakId")
+    Optional<String> findUserIdByKeycloakId(String keycloakId);
+
+    // Recommendation caches on every instance key a user's ranking on this version, so a change
+    // made through any instance is seen by all of them
+    @Transactional
+    @Modifying
+    @Query("UPDATE Users u SET u.recommendationVersion = COALESCE(u.recommendationVersion, 0) + 1 WHERE u.user_id = :userId")
+    int bumpRecommendationVersion(String userId);
+
+    @Query("SELECT COALESCE(u.recommendationVersion, 0) FROM Users u WHERE u.user_id = :userId")
+    Optional<Long> findRecommendationVersionById(String userId);
+
+    // Keyset page of the user list, as summaries rather than entities
+    @Query("SELECT new com.possilives.main.DTO.UserSummaryDTO(u.user_id, u.username, u.email, u.is_verified, " +
+           "u.is_banned, u.createdAt) FROM Users u WHERE u.user_id > :afterId ORDER BY u.user_id")
+    List<UserSummaryDTO> findSummariesAfter(String afterId, Pageable pageable);
+
+    // Keyset page: ids of the next users after the last id of the previous page, below upperBound
+    // (a null upperBound means no upper bound)
+    @Query("SELECT u.user_id FROM Users u WHERE u.user_id > :afterId AND (:upperBound IS NULL OR u.user_id < :upperBound) ORDER BY u.user_id")
+    List<String> findUserIdsAfter(String afterId, String upperBound, Pageable pageable);
+
+    // Keyset page of users that were never analyzed or had activity since their last analysis
+    @Query("SELECT u.user_id FROM Users u WHERE u.user_id > :afterId AND (:upperBound IS NULL OR u.user_id < :upperBound) AND NOT EXISTS (" +
+           "SELECT s FROM HabitAnalysisState s WHERE s.user_id = u.user_id AND s.analyzedAt IS NOT NULL " +
+           "AND (s.lastActivityAt IS NULL OR s.lastActivityAt <= s.analyzedAt)) " +
+           "ORDER BY u.user_id")
+    List<String> findDirtyUserIdsAfter(String afterId, String upperBound, Pageable pageable);
+
+    // Sizes of the two keyset scans above, for progress estimates
+    @Query("SELECT COUNT(u) FROM Users u WHERE u.user_id > :afterId AND (:upperBound IS NULL OR u.user_id < :upperBound)")
+    long countUsersBetween(String afterId, String upperBound);
+
+    @Query("SELECT COUNT(u) FROM Users u WHERE u.user_id > :afterId AND (:upperBound IS NULL OR u.user_id < :upperBound) AND NOT EXISTS (" +
+           "SELECT s FROM HabitAnalysisState s WHERE s.user_id = u.user_id AND s.analyzedAt IS NOT NULL " +
+           "AND (s.lastActivityAt IS NULL OR s.lastActivityAt <= s.analyzedAt))")
+    long countDirtyUsersBetween(String afterId, String upperBound);
+}
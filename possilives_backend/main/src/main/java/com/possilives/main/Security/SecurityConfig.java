@@ -4,6 +4,7 @@ import java.util.Arrays;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -27,6 +28,13 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
+                        // Role-restricted endpoints, checked before the API-wide permitAll. @PreAuthorize
+                        // is not enforced, since method security is not enabled
+                        .requestMatchers(HttpMethod.GET, "/api/audit/export").hasRole("auditor")
+                        .requestMatchers(HttpMethod.GET, "/api/habit-analysis/last-run").hasRole("admin")
+                        .requestMatchers(HttpMethod.GET, "/api/habit-analysis/runs").hasRole("admin")
+                        .requestMatchers(HttpMethod.GET, "/api/habit-analysis/progress").hasRole("admin")
+                        .requestMatchers(HttpMethod.GET, "/api/audit/platform-statistics").hasRole("admin")
                         .requestMatchers("/api/**").permitAll()  // Allow all API endpoints
                         .requestMatchers("/public/**").permitAll()  // Allow public endpoints
                         .requestMatchers("/auth/**").permitAll()   // Allow auth endpoints
@@ -3,79 +3,100 @@ package com.possilives.main.Service;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.possilives.main.DTO.StatisticsDTO;
 import com.possilives.main.DTO.StatisticsStreamDTO;
 import com.possilives.main.Model.enums.ACTION_TYPES;
 import com.possilives.main.Model.enums.TARGET_TYPES;
-import com.possilives.main.Repository.AuditLogRepository;
-import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Repository.AuditDailyRollupRepository;
 
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
 public class AuditLogService {
-  private final AuditLogRepository auditLogRepository;
-  private final UserRepository userRepository;
+  private final AuditDailyRollupRepository auditDailyRollupRepository;
+  private final CurrentUserService currentUserService;
   
+  @Transactional(readOnly = true)
   public List<StatisticsDTO> getAuditAggregation(String keycloakId, ACTION_TYPES action, TARGET_TYPES target, LocalDateTime startTime, LocalDateTime endTime) {
-    String userId = userRepository.findByKeycloakId(keycloakId).get().getUser_id();
-    // Get raw aggregation data from repository
-    List<Object[]> aggregatedData = auditLogRepository.getAuditLogAggregation(userId, startTime, endTime);
+    List<StatisticsStreamDTO> stats = new ArrayList<>();
+    double averageInfluence = streamAuditAggregation(keycloakId, startTime, endTime, stats::add);
     
-    // Group data by date
-    Map<LocalDateTime, StatisticsStreamDTO> statsByDate = new HashMap<>();
+    // Create and return final StatisticsDTO
+    StatisticsDTO result = new StatisticsDTO();
+    result.setAverageInfluence(averageInfluence);
+    result.setStats(stats);
+    
+    return List.of(result);
+  }
+
+  // Hands each day's statistics to onDay in date order while reading the rollups through a
+  // forward-only cursor, so memory stays constant over any range. Returns the average influence
+  @Transactional(readOnly = true)
+  public double streamAuditAggregation(String keycloakId, LocalDateTime startTime, LocalDateTime endTime, Consumer<StatisticsStreamDTO> onDay) {
+    String userId = currentUserService.resolveUserId(keycloakId).get();
     double totalInfluence = 0.0;
-    int totalInfluenceCount = 0;
-      // Process aggregation results
-    for (Object[] row : aggregatedData) {
+    long totalInfluenceCount = 0;
+    StatisticsStreamDTO dateStats = null;
+
+    // Per-day counts come from the rollup table, so the cost grows with the days in range, not the events
+    try (Stream<Object[]> rows = auditDailyRollupRepository.streamDailyRollups(userId, startTime, endTime)) {
+      Iterator<Object[]> iterator = rows.iterator();
+      while (iterator.hasNext()) {
+        Object[] row = iterator.next();
         LocalDateTime date = convertToLocalDateTime(row[0]);
         ACTION_TYPES rowAction = ACTION_TYPES.valueOf(row[1].toString());
         TARGET_TYPES rowTarget = TARGET_TYPES.valueOf(row[2].toString());
-        Long count = (Long) row[3];
+        long count = ((Number) row[3]).longValue();
         Double influenceValue = row.length > 4 ? convertToDouble(row[4]) : null;
-        
-        // Create statistics entry for this date if it doesn't exist
-        StatisticsStreamDTO dateStats = statsByDate.computeIfAbsent(date, k -> {
-            StatisticsStreamDTO stats = new StatisticsStreamDTO();
-            stats.setDate(date);
-            stats.setFuturesGenerated(0);
-            stats.setHabitsCreated(0);
-            stats.setHabitsInfluenceChanged(0);
-            return stats;
-        });
-          // Update counters based on action and target type
+
+        // Rows arrive ordered by date, so a new date closes the previous day
+        if (dateStats == null || !dateStats.getDate().equals(date)) {
+          if (dateStats != null) {
+            onDay.accept(dateStats);
+          }
+          dateStats = emptyDay(date);
+        }
+
+        // Update counters based on action and target type
         if (rowAction == ACTION_TYPES.C && rowTarget == TARGET_TYPES.GENERATION) {
-            dateStats.setFuturesGenerated(dateStats.getFuturesGenerated() + count.intValue());
+          dateStats.setFuturesGenerated(dateStats.getFuturesGenerated() + (int) count);
         } else if (rowAction == ACTION_TYPES.C && rowTarget == TARGET_TYPES.USERHABIT) {
-            dateStats.setHabitsCreated(dateStats.getHabitsCreated() + count.intValue());
+          dateStats.setHabitsCreated(dateStats.getHabitsCreated() + (int) count);
         } else if (rowAction == ACTION_TYPES.U && (rowTarget == TARGET_TYPES.INFLUENCE || rowTarget == TARGET_TYPES.USERHABIT)) {
-            // Handle both INFLUENCE and USERHABIT targets for updates (since influence updates might be logged as USERHABIT)
-            dateStats.setHabitsInfluenceChanged(dateStats.getHabitsInfluenceChanged() + count.intValue());
-            
-            // Track influence values for average calculation
-            if (influenceValue != null) {
-                totalInfluence += influenceValue * count;
-                totalInfluenceCount += count;
-            }
+          // Handle both INFLUENCE and USERHABIT targets for updates (since influence updates might be logged as USERHABIT)
+          dateStats.setHabitsInfluenceChanged(dateStats.getHabitsInfluenceChanged() + (int) count);
+
+          // Track influence values for average calculation
+          if (influenceValue != null) {
+            totalInfluence += influenceValue * count;
+            totalInfluenceCount += count;
+          }
         }
+      }
     }
-    
-    // Calculate average influence
-    double averageInfluence = totalInfluenceCount > 0 ? totalInfluence / totalInfluenceCount : 0.0;
-    
-    // Create and return final StatisticsDTO
-    StatisticsDTO result = new StatisticsDTO();
-    result.setAverageInfluence(averageInfluence);
-    result.setStats(new ArrayList<>(statsByDate.values()));
-    
-    return List.of(result);
+    if (dateStats != null) {
+      onDay.accept(dateStats);
+    }
+
+    return totalInfluenceCount > 0 ? totalInfluence / totalInfluenceCount : 0.0;
+  }
+
+  private StatisticsStreamDTO emptyDay(LocalDateTime date) {
+    StatisticsStreamDTO stats = new StatisticsStreamDTO();
+    stats.setDate(date);
+    stats.setFuturesGenerated(0);
+    stats.setHabitsCreated(0);
+    stats.setHabitsInfluenceChanged(0);
+    return stats;
   }
 
   protected LocalDateTime convertToLocalDateTime(Object date) {
@@ -0,0 +1,52 @@
+package com.possilives.main.Service;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.possilives.main.Repository.AuditDailyRollupRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Recomputes audit_daily_rollup from auditlog. The writer keeps the rollups current
+// incrementally; this corrects drift (failed writes, deleted or backfilled audit rows).
+// Read rollups are left alone once counted, since most reads leave no auditlog row
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditRollupService {
+  private final AuditDailyRollupRepository auditDailyRollupRepository;
+  private final PlatformAnalyticsService platformAnalyticsService;
+
+  // How many past days the nightly rebuild recomputes, today included
+  @Value("${audit.rollup.rebuild-days:2}")
+  private int rebuildDays;
+
+  @Scheduled(cron = "${audit.rollup.rebuild-cron:0 30 3 * * *}")
+  public void rebuildRecent() {
+    rebuildFrom(LocalDate.now().minusDays(Math.max(rebuildDays - 1, 0)), false);
+  }
+
+  @Transactional
+  public int rebuildFrom(LocalDate fromDate, boolean includeReads) {
+    // The writer adds increments to the rows; racing it with absolute counts would lose or double them
+    auditDailyRollupRepository.lockForRebuild();
+    auditDailyRollupRepository.deleteFrom(fromDate, includeReads);
+    int rows = auditDailyRollupRepository.rebuildFrom(fromDate, includeReads);
+    platformAnalyticsService.evictFrom(fromDate);
+    log.info("Rebuilt {} audit rollup rows from {}", rows, fromDate);
+    return rows;
+  }
+
+  // First start after the rollup table was introduced: build it from the whole audit history
+  @Transactional
+  public void initializeIfEmpty() {
+    if (auditDailyRollupRepository.count() == 0) {
+      rebuildFrom(LocalDate.EPOCH, true);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.possilives.main.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import com.possilives.main.Model.Users;
+import com.possilives.main.Repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+
+// Resolves the Keycloak id of the authenticated caller to our user_id without loading the
+// Users graph. Resolved ids are cached for a short TTL, so the audit aspect and controllers
+// share one lookup per user instead of running findByKeycloakId on every call
+@Service
+@RequiredArgsConstructor
+public class CurrentUserService {
+  private final UserRepository userRepository;
+
+  @Value("${user.current.cache-ttl-seconds:300}")
+  private long cacheTtlSeconds;
+
+  private record CachedUserId(String userId, long expiresAtNanos) {
+  }
+
+  private final Map<String, CachedUserId> userIds = new ConcurrentHashMap<>();
+
+  public Optional<String> getCurrentUserId() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null || !auth.isAuthenticated()) return Optional.empty();
+
+    return resolveUserId(auth.getName());
+  }
+
+  // Lazy reference for associations (e.g. auditBy); touching anything but the id loads the row
+  public Optional<Users> getCurrentUserReference() {
+    return getCurrentUserId().map(userRepository::getReferenceById);
+  }
+
+  public Optional<String> resolveUserId(String keycloakId) {
+    if (keycloakId == null) return Optional.empty();
+
+    long now = System.nanoTime();
+    CachedUserId cached = userIds.get(keycloakId);
+    if (cached != null && cached.expiresAtNanos() - now > 0) {
+      return Optional.of(cached.userId());
+    }
+
+    // Misses are not cached: the user may be created by initUser right after
+    Optional<String> userId = userRepository.findUserIdByKeycloakId(keycloakId);
+    userId.ifPresent(id -> userIds.put(keycloakId,
+        new CachedUserId(id, now + Duration.ofSeconds(cacheTtlSeconds).toNanos())));
+    return userId;
+  }
+
+  public void evict(String keycloakId) {
+    if (keycloakId != null) {
+      userIds.remove(keycloakId);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${user.current.cache-cleanup-ms:300000}")
+  public void evictExpired() {
+    long now = System.nanoTime();
+    userIds.values().removeIf(cached -> cached.expiresAtNanos() - now <= 0);
+  }
+}
@@ -51,7 +51,7 @@ public class GenerationsService {
 
   @Auditable
   public List<Generations> getUserGenerations(String keycloakId) {
-    Users user = userRepository.findByKeycloakId(keycloakId)
+    Users user = userRepository.findWithGenerationsByKeycloakId(keycloakId)
         .orElseThrow(() -> new RuntimeException("User not found"));
 
     return user.getGenerations();
@@ -84,7 +84,7 @@ public class GenerationsService {
         .orElseThrow(() -> new RuntimeException("Generation not found"));
   }
 
-  @Auditable
+  @Auditable(targetIdArg = 0)
   public void deleteGeneration(String generationId) {
     generationsRepository.deleteById(generationId);
   }
@@ -0,0 +1,91 @@
+package com.possilives.main.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.possilives.main.DTO.HabitAnalysisInput;
+import com.possilives.main.DTO.HabitAnalysisInput.HabitChange;
+import com.possilives.main.DTO.HabitAnalysisInput.HabitLine;
+import com.possilives.main.DTO.HabitAnalysisInput.PersonalityScores;
+import com.possilives.main.Repository.AuditLogRepository;
+import com.possilives.main.Repository.PersonalityRepository;
+import com.possilives.main.Repository.UserHabitRepository;
+import com.possilives.main.Service.HabitAnalysisMetrics.Phase;
+
+import lombok.RequiredArgsConstructor;
+
+// Read model of the habit analysis job: three queries per chunk of users, returning only
+// the columns the prompt uses, instead of one Users entity graph plus one audit query per user
+@Service
+@RequiredArgsConstructor
+public class HabitAnalysisInputLoader {
+  private final PersonalityRepository personalityRepository;
+  private final UserHabitRepository userHabitRepository;
+  private final AuditLogRepository auditLogRepository;
+  private final HabitAnalysisMetrics habitAnalysisMetrics;
+
+  // One input per user id, in the order of userIds; users without data get empty lists
+  public List<HabitAnalysisInput> load(List<String> userIds, LocalDateTime changesSince) {
+    if (userIds.isEmpty()) {
+      return List.of();
+    }
+
+    Map<String, PersonalityScores> personalities = new HashMap<>();
+    List<Object[]> personalityRows = habitAnalysisMetrics.time(Phase.USER_LOAD,
+        () -> personalityRepository.findLatestScoresForUsers(userIds));
+    for (Object[] row : personalityRows) {
+      personalities.put((String) row[0], new PersonalityScores(
+          toDouble(row[1]), toDouble(row[2]), toDouble(row[3]), toDouble(row[4]), toDouble(row[5])));
+    }
+
+    Map<String, List<HabitLine>> habits = new HashMap<>();
+    List<Object[]> habitRows = habitAnalysisMetrics.time(Phase.USER_LOAD,
+        () -> userHabitRepository.findHabitLinesForUsers(userIds));
+    for (Object[] row : habitRows) {
+      habits.computeIfAbsent((String) row[0], id -> new ArrayList<>())
+          .add(new HabitLine((String) row[1], toInteger(row[2]), toDouble(row[3])));
+    }
+
+    Map<String, List<HabitChange>> changes = new HashMap<>();
+    List<Object[]> changeRows = habitAnalysisMetrics.time(Phase.CHANGE_QUERY,
+        () -> auditLogRepository.getHabitChangesForUsers(userIds, changesSince));
+    for (Object[] row : changeRows) {
+      changes.computeIfAbsent((String) row[0], id -> new ArrayList<>())
+          .add(new HabitChange(toLocalDateTime(row[1]), (String) row[2], (String) row[3], toInteger(row[4])));
+    }
+
+    List<HabitAnalysisInput> inputs = new ArrayList<>(userIds.size());
+    for (String userId : userIds) {
+      inputs.add(new HabitAnalysisInput(
+          userId,
+          personalities.get(userId),
+          habits.getOrDefault(userId, List.of()),
+          changes.getOrDefault(userId, List.of())));
+    }
+    return inputs;
+  }
+
+  private static Double toDouble(Object value) {
+    return value != null ? ((Number) value).doubleValue() : null;
+  }
+
+  private static Integer toInteger(Object value) {
+    return value != null ? ((Number) value).intValue() : null;
+  }
+
+  // Helper method to convert database timestamp objects to LocalDateTime
+  private static LocalDateTime toLocalDateTime(Object date) {
+    if (date instanceof java.sql.Timestamp ts) {
+      return ts.toLocalDateTime();
+    } else if (date instanceof LocalDateTime dt) {
+      return dt;
+    } else {
+      throw new IllegalStateException("Unexpected type for date: " + date.getClass());
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.possilives.main.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.possilives.main.Config.PrioritizedTask;
+import com.possilives.main.DTO.HabitAnalysisJobDTO;
+import com.possilives.main.DTO.HabitAnalysisJobDTO.Status;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// On-demand habit analyses run as jobs on the interactive lane of the analysis pool, so the
+// HTTP request returns immediately and the client polls the job id
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HabitAnalysisJobService {
+  private final HabitAnalysisService habitAnalysisService;
+  private final ThreadPoolExecutor habitAnalysisExecutor;
+
+  // How long finished jobs can still be polled
+  @Value("${habit.analysis.job-retention-minutes:60}")
+  private long jobRetentionMinutes;
+
+  private final Map<String, HabitAnalysisJobDTO> jobs = new ConcurrentHashMap<>();
+  // User id -> job that is queued or running for that user
+  private final Map<String, HabitAnalysisJobDTO> activeJobs = new ConcurrentHashMap<>();
+
+  // Returns the user's active job instead of starting a second one
+  public HabitAnalysisJobDTO submit(String userId) {
+    HabitAnalysisJobDTO[] created = new HabitAnalysisJobDTO[1];
+    HabitAnalysisJobDTO job = activeJobs.computeIfAbsent(userId, id -> created[0] = newJob(id));
+    if (created[0] == null) {
+      log.info("Habit analysis for user {} already in progress as job {}", userId, job.getJobId());
+      return job;
+    }
+
+    jobs.put(job.getJobId(), job);
+    try {
+      habitAnalysisExecutor.execute(new PrioritizedTask(PrioritizedTask.Priority.INTERACTIVE, () -> run(job)));
+    } catch (RejectedExecutionException e) {
+      finish(job, Status.FAILED, null, "Analysis executor rejected the job");
+    }
+    return job;
+  }
+
+  public Optional<HabitAnalysisJobDTO> getJob(String jobId) {
+    return Optional.ofNullable(jobs.get(jobId));
+  }
+
+  @Scheduled(fixedDelayString = "${habit.analysis.job-cleanup-ms:300000}")
+  public void evictFinishedJobs() {
+    LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+    jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+  }
+
+  private void run(HabitAnalysisJobDTO job) {
+    job.setStatus(Status.RUNNING);
+    job.setStartedAt(LocalDateTime.now());
+    try {
+      HabitAnalysisService.AnalysisOutcome outcome = habitAnalysisService.triggerHabitAnalysisForUser(job.getUserId());
+      finish(job, outcome == HabitAnalysisService.AnalysisOutcome.FAILED ? Status.FAILED : Status.SUCCEEDED,
+          outcome.name(), null);
+    } catch (Exception e) {
+      log.error("Habit analysis job {} for user {} failed: {}", job.getJobId(), job.getUserId(), e.getMessage());
+      finish(job, Status.FAILED, null, e.getMessage());
+    }
+  }
+
+  private void finish(HabitAnalysisJobDTO job, Status status, String outcome, String error) {
+    // A client that sees the job finished can trigger again right away
+    activeJobs.remove(job.getUserId(), job);
+    job.setOutcome(outcome);
+    job.setError(error);
+    job.setFinishedAt(LocalDateTime.now());
+    job.setStatus(status);
+  }
+
+  private static HabitAnalysisJobDTO newJob(String userId) {
+    HabitAnalysisJobDTO job = new HabitAnalysisJobDTO();
+    job.setJobId(UUID.randomUUID().toString());
+    job.setUserId(userId);
+    job.setStatus(Status.QUEUED);
+    job.setCreatedAt(LocalDateTime.now());
+    return job;
+  }
+}
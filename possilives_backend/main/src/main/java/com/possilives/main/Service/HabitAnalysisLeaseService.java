@@ -0,0 +1,140 @@
+package com.possilives.main.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.possilives.main.Model.HabitAnalysisShard;
+import com.possilives.main.Repository.HabitAnalysisShardRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Database-backed leases that split each scheduled habit analysis run into user-id range
+// shards. Every node opens the same slot, then claims shards one at a time; a shard whose
+// owner stops renewing its lease can be claimed by any other node
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HabitAnalysisLeaseService {
+  // Generated user ids are random lowercase hex UUIDs, so ranges over their first four hex digits
+  // behave like hash ranges while keeping keyset paging on the primary key. The first shard starts
+  // below every id and the last has no upper bound, so ids of any other format still land in
+  // exactly one shard; they only skew the shard sizes
+  private static final int KEY_SPACE = 0x10000;
+
+  private final HabitAnalysisShardRepository habitAnalysisShardRepository;
+
+  @Value("${habit.analysis.shards:16}")
+  private int shardCount;
+  @Value("${habit.analysis.lease-minutes:10}")
+  private long leaseMinutes;
+  // How far back the sweeper looks for unfinished shards of earlier slots
+  @Value("${habit.analysis.shard-reclaim-hours:6}")
+  private long shardReclaimHours;
+  @Value("${habit.analysis.full-refresh-hours:168}")
+  private long fullRefreshHours;
+  @Value("${habit.analysis.node-id:}")
+  private String configuredNodeId;
+
+  private volatile String nodeId;
+
+  public String nodeId() {
+    if (nodeId == null) {
+      nodeId = configuredNodeId != null && !configuredNodeId.isBlank() ? configuredNodeId : defaultNodeId();
+    }
+    return nodeId;
+  }
+
+  // Creates the shards of a slot unless another node already did
+  public void openSlot(LocalDateTime slot) {
+    LocalDateTime lastFullRefresh = habitAnalysisShardRepository.findLastFullRefreshSlot();
+    boolean fullRefresh = lastFullRefresh == null || !slot.isBefore(lastFullRefresh.plusHours(fullRefreshHours));
+
+    LocalDateTime now = LocalDateTime.now();
+    int created = 0;
+    for (int i = 0; i < shardCount; i++) {
+      created += habitAnalysisShardRepository.createShard(
+          slot + "#" + i, slot, i, lowerBound(i), upperBound(i), fullRefresh, now);
+    }
+
+    if (created > 0) {
+      log.info("Opened habit analysis slot {} with {} shards ({} refresh)", slot, created, fullRefresh ? "full" : "incremental");
+    }
+  }
+
+  // Claims the next unfinished shard of a recent slot that nobody holds a live lease on
+  public Optional<HabitAnalysisShard> claimNext() {
+    LocalDateTime now = LocalDateTime.now();
+    for (HabitAnalysisShard shard : habitAnalysisShardRepository.findClaimable(now.minusHours(shardReclaimHours), now)) {
+      LocalDateTime leaseExpiresAt = now.plusMinutes(leaseMinutes);
+      if (habitAnalysisShardRepository.claim(shard.getShard_id(), nodeId(), now, leaseExpiresAt) == 1) {
+        if (shard.getOwner() != null) {
+          log.warn("Reclaimed shard {} from {} after its lease expired", shard.getShard_id(), shard.getOwner());
+        }
+        if (shard.getLastUserId() != null) {
+          log.info("Resuming shard {} after checkpoint {}", shard.getShard_id(), shard.getLastUserId());
+        }
+        shard.setOwner(nodeId());
+        shard.setLeaseExpiresAt(leaseExpiresAt);
+        return Optional.of(shard);
+      }
+    }
+    return Optional.empty();
+  }
+
+  // Extends the lease and persists the shard's checkpoint fields. False when the lease was
+  // lost to another node, which then owns the rest of the shard
+  public boolean renew(HabitAnalysisShard shard) {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime leaseExpiresAt = now.plusMinutes(leaseMinutes);
+    boolean renewed = habitAnalysisShardRepository.renew(shard.getShard_id(), nodeId(), leaseExpiresAt,
+        shard.getLastUserId(), shard.getProcessedCount(), shard.getNotifiedCount(), shard.getFailedCount(), now) == 1;
+    if (renewed) {
+      shard.setLeaseExpiresAt(leaseExpiresAt);
+      shard.setCheckpointedAt(now);
+    }
+    return renewed;
+  }
+
+  // Hands an unfinished shard back on shutdown instead of letting its lease run out
+  public void release(HabitAnalysisShard shard) {
+    if (habitAnalysisShardRepository.release(shard.getShard_id(), nodeId(), shard.getLastUserId(),
+        shard.getProcessedCount(), shard.getNotifiedCount(), shard.getFailedCount(), LocalDateTime.now()) == 1) {
+      log.info("Released shard {} at checkpoint {}", shard.getShard_id(), shard.getLastUserId());
+    }
+  }
+
+  public void complete(HabitAnalysisShard shard) {
+    habitAnalysisShardRepository.complete(shard.getShard_id(), nodeId(), LocalDateTime.now(), shard.getLastUserId(),
+        shard.getProcessedCount(), shard.getNotifiedCount(), shard.getFailedCount());
+  }
+
+  public List<HabitAnalysisShard> getShards(LocalDateTime slot) {
+    return habitAnalysisShardRepository.findBySlotOrderByShardIndex(slot);
+  }
+
+  private String lowerBound(int shardIndex) {
+    return shardIndex == 0 ? "" : String.format("%04x", (int) ((long) shardIndex * KEY_SPACE / shardCount));
+  }
+
+  // Null for the last shard: no upper bound
+  private String upperBound(int shardIndex) {
+    return shardIndex == shardCount - 1 ? null : lowerBound(shardIndex + 1);
+  }
+
+  private static String defaultNodeId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (Exception e) {
+      host = "node";
+    }
+    return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+  }
+}
@@ -0,0 +1,106 @@
+package com.possilives.main.Service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.possilives.main.Service.HabitAnalysisService.AnalysisOutcome;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Micrometer meters of the habit analysis job, so a slow run can be attributed to Postgres,
+// prompt building or the AI service. Email and notification saving are timed by
+// NotificationsService (notifications.email.send, notifications.save)
+@Component
+public class HabitAnalysisMetrics {
+  public enum Phase {
+    // Keyset page of user ids
+    PAGE_QUERY,
+    // Personality and habit chunk queries
+    USER_LOAD,
+    // Recent habit change chunk query
+    CHANGE_QUERY,
+    PROMPT_BUILD,
+    AI_REQUEST,
+    // Email and notification of one user
+    NOTIFICATION
+  }
+
+  public enum Trigger {
+    SCHEDULED,
+    ON_DEMAND
+  }
+
+  private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+  private final Map<Trigger, Map<AnalysisOutcome, Counter>> outcomeCounters = new EnumMap<>(Trigger.class);
+  private final DistributionSummary aiBatchSize;
+  private final DistributionSummary promptLength;
+  private final Counter aiRetries;
+
+  public HabitAnalysisMetrics(MeterRegistry meterRegistry) {
+    for (Phase phase : Phase.values()) {
+      phaseTimers.put(phase, Timer.builder("habit.analysis.phase")
+          .description("Time spent in one phase of the habit analysis job")
+          .tag("phase", tagValue(phase))
+          .publishPercentileHistogram()
+          .register(meterRegistry));
+    }
+    for (Trigger trigger : Trigger.values()) {
+      Map<AnalysisOutcome, Counter> counters = new EnumMap<>(AnalysisOutcome.class);
+      for (AnalysisOutcome outcome : AnalysisOutcome.values()) {
+        counters.put(outcome, Counter.builder("habit.analysis.users")
+            .description("Analyzed users by outcome")
+            .tag("trigger", tagValue(trigger))
+            .tag("outcome", tagValue(outcome))
+            .register(meterRegistry));
+      }
+      outcomeCounters.put(trigger, counters);
+    }
+    aiBatchSize = DistributionSummary.builder("habit.analysis.ai.batch.size")
+        .description("Prompts per request to the AI service")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    promptLength = DistributionSummary.builder("habit.analysis.prompt.length")
+        .description("Characters of analysis data per prompt")
+        .baseUnit("chars")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    aiRetries = Counter.builder("habit.analysis.ai.retries")
+        .description("Prompts sent again as single requests after their batch or batch item failed")
+        .register(meterRegistry);
+  }
+
+  public <T> T time(Phase phase, Supplier<T> action) {
+    return phaseTimers.get(phase).record(action);
+  }
+
+  public void record(Phase phase, Runnable action) {
+    phaseTimers.get(phase).record(action);
+  }
+
+  public void outcome(Trigger trigger, AnalysisOutcome outcome) {
+    outcomeCounters.get(trigger).get(outcome).increment();
+  }
+
+  public void aiBatch(int prompts) {
+    aiBatchSize.record(prompts);
+  }
+
+  public void aiRetry() {
+    aiRetries.increment();
+  }
+
+  public void prompt(int chars) {
+    promptLength.record(chars);
+  }
+
+  private static String tagValue(Enum<?> value) {
+    return value.name().toLowerCase(Locale.ROOT);
+  }
+}
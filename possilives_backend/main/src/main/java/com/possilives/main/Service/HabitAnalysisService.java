@@ -1,30 +1,53 @@
 package com.possilives.main.Service;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import com.possilives.main.Model.Notifications;
+import com.possilives.main.Config.PrioritizedTask;
+import com.possilives.main.DTO.HabitAnalysisInput;
+import com.possilives.main.DTO.HabitAnalysisInput.HabitChange;
+import com.possilives.main.DTO.HabitAnalysisInput.HabitLine;
+import com.possilives.main.DTO.HabitAnalysisInput.PersonalityScores;
+import com.possilives.main.DTO.HabitAnalysisProgressDTO;
+import com.possilives.main.DTO.HabitAnalysisShardDTO;
+import com.possilives.main.DTO.HabitAnalysisSummaryDTO;
+import com.possilives.main.Model.HabitAnalysisShard;
+import com.possilives.main.Model.HabitAnalysisState;
 import com.possilives.main.Model.NotificationType;
-import com.possilives.main.Model.Personality;
 import com.possilives.main.Model.User_Habits;
 import com.possilives.main.Model.Users;
 import com.possilives.main.Repository.AuditLogRepository;
-import com.possilives.main.Repository.NotificationsRepository;
+import com.possilives.main.Repository.HabitAnalysisStateRepository;
 import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.HabitAnalysisMetrics.Phase;
+import com.possilives.main.Service.HabitAnalysisMetrics.Trigger;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -35,112 +58,411 @@ public class HabitAnalysisService {
     
     private final UserRepository userRepository;
     private final AuditLogRepository auditLogRepository;
-    private final NotificationsRepository notificationsRepository;
     private final NotificationsService notificationsService;
-    @Value("${habit.analysis.api.url:http://localhost:5001}")
-    private String habitAnalysisApiUrl;
+    private final HabitAnalysisStateRepository habitAnalysisStateRepository;
+    private final UserActivityService userActivityService;
+    private final HabitAnalysisLeaseService habitAnalysisLeaseService;
+    private final HabitRecommendationClient habitRecommendationClient;
+    private final HabitAnalysisInputLoader habitAnalysisInputLoader;
+    private final HabitAnalysisMetrics habitAnalysisMetrics;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${habit.analysis.parallel:true}")
+    private boolean parallelAnalysis;
+    @Value("${habit.analysis.max-in-flight:8}")
+    private int maxInFlight;
+    @Value("${habit.analysis.page-size:200}")
+    private int pageSize;
+    // What the scheduled run does for users whose analysis input is unchanged since the last run
+    @Value("${habit.analysis.unchanged-policy:SKIP}")
+    private UnchangedInputPolicy unchangedInputPolicy;
+    // How long shutdown waits for in-flight users before giving up on a clean checkpoint
+    @Value("${habit.analysis.shutdown-wait-seconds:30}")
+    private long shutdownWaitSeconds;
+    
+    private final ThreadPoolExecutor habitAnalysisExecutor;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+    // Users with an analysis running on this node, whether batch or on demand
+    private final Set<String> usersInAnalysis = ConcurrentHashMap.newKeySet();
+    private volatile HabitAnalysisSummaryDTO lastRunSummary;
+    private volatile RunTracker currentRun;
+    
+    public enum AnalysisOutcome {
+        NOTIFIED,
+        NO_HABITS,
+        NO_RECOMMENDATION,
+        UNCHANGED,
+        ALREADY_ANALYZED,
+        IN_PROGRESS,
+        REUSED,
+        FAILED
+    }
+    
+    public enum UnchangedInputPolicy {
+        // No AI call and no notification
+        SKIP,
+        // No AI call, the stored recommendation is sent again
+        REUSE
+    }
 
-    // Run every 12 hours at 8 AM and 8 PM
+    // Run every 12 hours at 8 AM and 8 PM. Every backend node fires this; the shards of the
+    // slot make sure each user is still analyzed by only one of them
     @Scheduled(cron = "0 0 8,20 * * *")
     public void analyzeHabitsAndGenerateRecommendations() {
-        log.info("Starting habit analysis for all users...");
+        habitAnalysisLeaseService.openSlot(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+        runClaimableShards();
+    }
+    
+    // Picks up shards whose owner died or stopped renewing its lease before finishing
+    @Scheduled(fixedDelayString = "${habit.analysis.lease-sweep-ms:60000}",
+        initialDelayString = "${habit.analysis.lease-sweep-ms:60000}")
+    public void reclaimExpiredShards() {
+        runClaimableShards();
+    }
+    
+    // Claims and analyzes shards one after another until none are left for this node
+    private void runClaimableShards() {
+        if (!running.compareAndSet(false, true)) {
+            log.debug("Habit analysis already running on this node");
+            return;
+        }
         
+        RunTracker tracker = null;
         try {
-            List<Users> allUsers = userRepository.findAll();
+            // Make sure activity still buffered in memory is visible to the dirty-user query
+            userActivityService.flush();
             
-            for (Users user : allUsers) {
-                try {
-                    analyzeUserHabits(user);
-                } catch (Exception e) {
-                    log.error("Error analyzing habits for user {}: {}", user.getUser_id(), e.getMessage());
+            Optional<HabitAnalysisShard> claimed;
+            while (!stopping && (claimed = habitAnalysisLeaseService.claimNext()).isPresent()) {
+                HabitAnalysisShard shard = claimed.get();
+                if (tracker == null) {
+                    tracker = new RunTracker();
+                    currentRun = tracker;
+                    log.info("Starting habit analysis on node {} ({} mode, max in-flight {})...",
+                        habitAnalysisLeaseService.nodeId(), parallelAnalysis ? "parallel" : "sequential", maxInFlight);
                 }
+                analyzeShard(shard, tracker);
             }
-            
-            log.info("Completed habit analysis for {} users", allUsers.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Habit analysis interrupted after {} users", tracker != null ? tracker.processed.get() : 0);
         } catch (Exception e) {
             log.error("Error in habit analysis process: {}", e.getMessage());
+        } finally {
+            currentRun = null;
+            running.set(false);
         }
+        
+        if (tracker == null) {
+            return;
+        }
+        
+        HabitAnalysisSummaryDTO summary = tracker.toSummary();
+        lastRunSummary = summary;
+        log.info("Completed habit analysis of {} shards for {} users in {} ms ({} users/s, peak heap {} MB): {} notified, {} skipped, {} failed, {} unchanged, {} reused (skip/reuse ratio {})",
+            summary.getShardsCompleted(), summary.getUsersProcessed(), summary.getWallClockMillis(), summary.getThroughputPerSecond(),
+            summary.getPeakHeapUsedBytes() / (1024 * 1024),
+            summary.getNotified(), summary.getSkipped(), summary.getFailed(),
+            summary.getUnchanged(), summary.getReused(), summary.getSkipReuseRatio());
     }
     
-    private void analyzeUserHabits(Users user) {
-        log.info("Analyzing habits for user: {}", user.getUser_id());
+    private void analyzeShard(HabitAnalysisShard shard, RunTracker tracker) throws InterruptedException {
+        // Incremental shards only visit users with activity since their last analysis; a periodic
+        // full refresh still revisits everyone so that insights do not go stale
+        boolean fullRefresh = Boolean.TRUE.equals(shard.getFullRefresh());
+        tracker.fullRefresh |= fullRefresh;
+        ShardProgress progress = new ShardProgress(shard, tracker);
+        log.info("Analyzing shard {} ({} refresh, users in ({}, {}))",
+            shard.getShard_id(), fullRefresh ? "full" : "incremental", progress.checkpoint, shard.getUpperBound());
+        tracker.startShard(shard, habitAnalysisMetrics.time(Phase.PAGE_QUERY, () -> fullRefresh
+            ? userRepository.countUsersBetween(progress.checkpoint, shard.getUpperBound())
+            : userRepository.countDirtyUsersBetween(progress.checkpoint, shard.getUpperBound())));
         
-        // Skip if user has no habits
-        if (user.getUser_habits() == null || user.getUser_habits().isEmpty()) {
-            log.debug("User {} has no habits to analyze", user.getUser_id());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        boolean leaseHeld = true;
+        boolean interrupted = false;
+        
+        // Users are read in keyset pages of ids, and each page is turned into analysis inputs by
+        // a few chunk queries of the read model. Only the current page and the in-flight users
+        // stay reachable, which keeps heap usage flat regardless of the user count
+        String lastUserId = progress.checkpoint;
+        List<String> page = List.of();
+        try {
+            do {
+                String afterId = lastUserId;
+                page = habitAnalysisMetrics.time(Phase.PAGE_QUERY, () -> fullRefresh
+                    ? userRepository.findUserIdsAfter(afterId, shard.getUpperBound(), PageRequest.of(0, pageSize))
+                    : userRepository.findDirtyUserIdsAfter(afterId, shard.getUpperBound(), PageRequest.of(0, pageSize)));
+                // Recent habit changes (last 7 days)
+                LocalDateTime changesSince = LocalDateTime.now().minusDays(7);
+                for (HabitAnalysisInput input : habitAnalysisInputLoader.load(page, changesSince)) {
+                    if (stopping) {
+                        break;
+                    }
+                    dispatch(input, inFlight, progress);
+                }
+                if (!page.isEmpty()) {
+                    lastUserId = page.get(page.size() - 1);
+                }
+                progress.saveTo(shard);
+                leaseHeld = habitAnalysisLeaseService.renew(shard);
+            } while (leaseHeld && !stopping && page.size() == pageSize);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        
+        // Wait for the remaining in-flight users to drain, so the final checkpoint covers them
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+        progress.saveTo(shard);
+        
+        if (!leaseHeld) {
+            log.warn("Lost the lease on shard {} after user {}, another node continues it", shard.getShard_id(), lastUserId);
+        } else if (stopping || interrupted) {
+            habitAnalysisLeaseService.release(shard);
+        } else {
+            habitAnalysisLeaseService.complete(shard);
+            tracker.shardsCompleted.incrementAndGet();
+        }
+        
+        if (interrupted) {
+            throw new InterruptedException();
+        }
+    }
+    
+    // In parallel mode runs the user as a task on the dedicated pool. The semaphore caps the number
+    // of submitted-but-unfinished users, so the AI service sees at most maxInFlight requests and
+    // the page loop blocks instead of queueing the whole population
+    private void dispatch(HabitAnalysisInput input, Semaphore inFlight, ShardProgress progress) throws InterruptedException {
+        // Resumed and reclaimed shards may revisit users that were already analyzed in this slot
+        LocalDateTime analyzedSince = progress.shard.getSlot();
+        progress.started(input.userId());
+        if (!parallelAnalysis) {
+            progress.finished(input.userId(), analyzeUserHabitsSafely(input, analyzedSince));
             return;
         }
         
-        log.info("User {} has {} habits", user.getUser_id(), user.getUser_habits().size());
+        inFlight.acquire();
+        try {
+            habitAnalysisExecutor.execute(new PrioritizedTask(PrioritizedTask.Priority.BATCH, () -> {
+                try {
+                    progress.finished(input.userId(), analyzeUserHabitsSafely(input, analyzedSince));
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            log.error("Analysis executor rejected user {}: {}", input.userId(), e.getMessage());
+            progress.finished(input.userId(), AnalysisOutcome.FAILED);
+        }
+    }
+    
+    // Stops dispatching new users, lets the in-flight ones finish and releases the shard at its
+    // checkpoint, so another node (or this one after restart) resumes where this one stopped
+    @PreDestroy
+    public void stopOnShutdown() throws InterruptedException {
+        stopping = true;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownWaitSeconds);
+        while (running.get() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        if (running.get()) {
+            log.warn("Habit analysis still running after {} s, its shard resumes once the lease expires", shutdownWaitSeconds);
+        }
+    }
+    
+    // Failures of one user must never abort the rest of the run
+    private AnalysisOutcome analyzeUserHabitsSafely(HabitAnalysisInput input, LocalDateTime analyzedSince) {
+        try {
+            return analyzeUserHabitsExclusively(input, unchangedInputPolicy, analyzedSince);
+        } catch (Exception e) {
+            log.error("Error analyzing habits for user {}: {}", input.userId(), e.getMessage());
+            return AnalysisOutcome.FAILED;
+        }
+    }
+    
+    public HabitAnalysisSummaryDTO getLastRunSummary() {
+        return lastRunSummary;
+    }
+    
+    public HabitAnalysisProgressDTO getProgress() {
+        HabitAnalysisProgressDTO progress = new HabitAnalysisProgressDTO();
+        progress.setNodeId(habitAnalysisLeaseService.nodeId());
+        RunTracker tracker = currentRun;
+        HabitAnalysisShard shard = tracker != null ? tracker.currentShard : null;
+        progress.setRunning(shard != null);
+        if (shard == null) {
+            return progress;
+        }
+        
+        int processed = tracker.processed.get();
+        long shardDone = processed - tracker.processedBeforeShard;
+        List<HabitAnalysisShard> slotShards = habitAnalysisLeaseService.getShards(shard.getSlot());
+        int slotShardsCompleted = (int) slotShards.stream().filter(s -> s.getCompletedAt() != null).count();
         
-        // Get recent habit changes (last 7 days)
-        LocalDateTime oneWeekAgo = LocalDateTime.now().minusDays(7);
-        List<Object[]> habitChanges = auditLogRepository.getHabitChangesForUser(user.getUser_id(), oneWeekAgo);
+        progress.setStartedAt(tracker.startedAt);
+        progress.setSlot(shard.getSlot());
+        progress.setCurrentShard(shard.getShard_id());
+        progress.setShardUsersTotal(tracker.currentShardUsers);
+        progress.setShardUsersDone(shardDone);
+        progress.setSlotShards(slotShards.size());
+        progress.setSlotShardsCompleted(slotShardsCompleted);
+        progress.setUsersProcessed(processed);
+        progress.setNotified(tracker.notified.get());
+        progress.setSkipped(tracker.skipped.get());
+        progress.setFailed(tracker.failed.get());
+        
+        double elapsedSeconds = (System.nanoTime() - tracker.startNanos) / 1e9;
+        double rate = elapsedSeconds > 0 ? processed / elapsedSeconds : 0.0;
+        progress.setRatePerSecond(Math.round(rate * 100.0) / 100.0);
+        if (rate > 0) {
+            // Shards are equal hash ranges, so the current one is a fair size estimate for the rest
+            long otherShardsLeft = Math.max(0, slotShards.size() - slotShardsCompleted - 1);
+            long usersLeft = Math.max(0, tracker.currentShardUsers - shardDone) + otherShardsLeft * tracker.currentShardUsers;
+            long etaSeconds = Math.round(usersLeft / rate);
+            progress.setEtaSeconds(etaSeconds);
+            progress.setEstimatedFinishAt(LocalDateTime.now().plusSeconds(etaSeconds));
+        }
+        return progress;
+    }
+    
+    public List<HabitAnalysisShardDTO> getRunShards(LocalDateTime slot) {
+        return habitAnalysisLeaseService.getShards(slot).stream()
+            .map(HabitAnalysisShardDTO::of)
+            .toList();
+    }
+    
+    // A user already being analyzed is not analyzed a second time in parallel
+    private AnalysisOutcome analyzeUserHabitsExclusively(HabitAnalysisInput input, UnchangedInputPolicy unchangedPolicy, LocalDateTime analyzedSince) {
+        if (!usersInAnalysis.add(input.userId())) {
+            log.info("Habit analysis for user {} already in progress, skipping", input.userId());
+            return AnalysisOutcome.IN_PROGRESS;
+        }
+        try {
+            return analyzeUserHabits(input, unchangedPolicy, analyzedSince);
+        } finally {
+            usersInAnalysis.remove(input.userId());
+        }
+    }
+    
+    // Users analyzed at or after analyzedSince are skipped, so that a resumed run never notifies
+    // anyone twice; null analyzes unconditionally
+    private AnalysisOutcome analyzeUserHabits(HabitAnalysisInput input, UnchangedInputPolicy unchangedPolicy, LocalDateTime analyzedSince) {
+        log.info("Analyzing habits for user: {}", input.userId());
+        // Activity recorded after this instant keeps the user dirty for the next run
+        LocalDateTime analysisStartedAt = LocalDateTime.now();
+        HabitAnalysisState state = habitAnalysisStateRepository.findById(input.userId())
+            .orElseGet(HabitAnalysisState::new);
+        
+        if (analyzedSince != null && state.getAnalyzedAt() != null && !state.getAnalyzedAt().isBefore(analyzedSince)) {
+            log.info("User {} was already analyzed at {}, skipping", input.userId(), state.getAnalyzedAt());
+            return AnalysisOutcome.ALREADY_ANALYZED;
+        }
         
-        log.info("Found {} recent habit changes for user {}", habitChanges.size(), user.getUser_id());
+        // Skip if user has no habits
+        if (input.habits().isEmpty()) {
+            log.debug("User {} has no habits to analyze", input.userId());
+            habitAnalysisStateRepository.recordAnalysis(input.userId(), null, null, analysisStartedAt);
+            return AnalysisOutcome.NO_HABITS;
+        }
+        
+        log.info("User {} has {} habits", input.userId(), input.habits().size());
+        log.info("Found {} recent habit changes for user {}", input.changes().size(), input.userId());
         
         // Generate recommendations even if no recent changes (for users with existing habits)
         // This allows for periodic insights even without recent activity
-        String analysisData = prepareHabitAnalysisData(user, habitChanges);
+        String analysisData = habitAnalysisMetrics.time(Phase.PROMPT_BUILD, () -> prepareHabitAnalysisData(input));
+        habitAnalysisMetrics.prompt(analysisData.length());
+        
+        // Same input as the last successful analysis: the AI would only repeat itself
+        String fingerprint = fingerprint(analysisData);
+        
+        if (fingerprint.equals(state.getInputFingerprint()) && state.getLastRecommendation() != null) {
+            if (unchangedPolicy == UnchangedInputPolicy.SKIP) {
+                log.info("Analysis input unchanged for user {}, skipping", input.userId());
+                habitAnalysisStateRepository.recordAnalysis(input.userId(), null, null, analysisStartedAt);
+                return AnalysisOutcome.UNCHANGED;
+            }
+            
+            try {
+                createHabitRecommendationNotification(input.userId(), state.getLastRecommendation());
+            } catch (Exception e) {
+                log.error("Failed to resend notification for user {}: {}", input.userId(), e.getMessage(), e);
+                return AnalysisOutcome.FAILED;
+            }
+            habitAnalysisStateRepository.recordAnalysis(input.userId(), null, null, analysisStartedAt);
+            log.info("Analysis input unchanged for user {}, reused last recommendation", input.userId());
+            return AnalysisOutcome.REUSED;
+        }
         
         // Generate recommendations using Gemini AI
-        log.info("Calling AI service for recommendations for user: {}", user.getUser_id());
+        log.info("Calling AI service for recommendations for user: {}", input.userId());
         String recommendations = generateAIRecommendations(analysisData);
         
         if (recommendations != null && !recommendations.trim().isEmpty()) {
             try {
                 // Create and save notification
-                createHabitRecommendationNotification(user, recommendations);
-                log.info("Successfully generated and sent habit recommendations for user: {}", user.getUser_id());
+                createHabitRecommendationNotification(input.userId(), recommendations);
             } catch (Exception e) {
-                log.error("Failed to send notification for user {}: {}", user.getUser_id(), e.getMessage(), e);
+                log.error("Failed to send notification for user {}: {}", input.userId(), e.getMessage(), e);
+                return AnalysisOutcome.FAILED;
             }
+            
+            // Only remember the input once the user actually received the result
+            habitAnalysisStateRepository.recordAnalysis(input.userId(), fingerprint, recommendations, analysisStartedAt);
+            
+            log.info("Successfully generated and sent habit recommendations for user: {}", input.userId());
+            return AnalysisOutcome.NOTIFIED;
         } else {
-            log.warn("No recommendations generated for user: {} - AI service returned empty/null response", user.getUser_id());
+            log.warn("No recommendations generated for user: {} - AI service returned empty/null response", input.userId());
+            return AnalysisOutcome.NO_RECOMMENDATION;
+        }
+    }
+    
+    private String fingerprint(String analysisData) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(analysisData.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
     
-    private String prepareHabitAnalysisData(Users user, List<Object[]> habitChanges) {
+    private String prepareHabitAnalysisData(HabitAnalysisInput input) {
         StringBuilder data = new StringBuilder();
         
         // Add user personality information
-        if (user.getPersonalities() != null && !user.getPersonalities().isEmpty()) {
-            Personality latestPersonality = user.getPersonalities().stream()
-                .max((p1, p2) -> p1.getCreatedAt().compareTo(p2.getCreatedAt()))
-                .orElse(null);
-                
-            if (latestPersonality != null) {
-                data.append("User Personality Profile:\n");
-                data.append("- Openness: ").append(latestPersonality.getOpenness()).append("/100\n");
-                data.append("- Conscientiousness: ").append(latestPersonality.getConscientiousness()).append("/100\n");
-                data.append("- Extraversion: ").append(latestPersonality.getExtraversion()).append("/100\n");
-                data.append("- Agreeableness: ").append(latestPersonality.getAgreeableness()).append("/100\n");
-                data.append("- Neuroticism: ").append(latestPersonality.getNeuroticism()).append("/100\n\n");
-            }
+        PersonalityScores personality = input.personality();
+        if (personality != null) {
+            data.append("User Personality Profile:\n");
+            data.append("- Openness: ").append(personality.openness()).append("/100\n");
+            data.append("- Conscientiousness: ").append(personality.conscientiousness()).append("/100\n");
+            data.append("- Extraversion: ").append(personality.extraversion()).append("/100\n");
+            data.append("- Agreeableness: ").append(personality.agreeableness()).append("/100\n");
+            data.append("- Neuroticism: ").append(personality.neuroticism()).append("/100\n\n");
         }
         
         // Add current habits
         data.append("Current Habits:\n");
-        for (User_Habits userHabit : user.getUser_habits()) {
-            data.append("- ").append(userHabit.getHabit().getTitle())
-                .append(" (Impact Rating: ").append(userHabit.getImpact_rating()).append("/10")
-                .append(", Average Impact: ").append(userHabit.getAverage_impact() != null ? userHabit.getAverage_impact() : "N/A")
+        for (HabitLine habit : input.habits()) {
+            data.append("- ").append(habit.title())
+                .append(" (Impact Rating: ").append(habit.impactRating()).append("/10")
+                .append(", Average Impact: ").append(habit.averageImpact() != null ? habit.averageImpact() : "N/A")
                 .append(")\n");
-        }        data.append("\n");
+        }
+        data.append("\n");
         
         // Add recent habit changes
         data.append("Recent Habit Changes (Last 7 days):\n");
-        for (Object[] change : habitChanges) {
-            LocalDateTime changeDate = convertToLocalDateTime(change[0]);
-            String action = (String) change[1];
-            String habitTitle = change[2] != null ? (String) change[2] : "Unknown Habit";
-            Integer newImpact = change[3] != null ? (Integer) change[3] : null;
+        for (HabitChange change : input.changes()) {
+            String habitTitle = change.habitTitle() != null ? change.habitTitle() : "Unknown Habit";
+            Integer newImpact = change.newImpact();
             
-            data.append("- ").append(changeDate.toLocalDate()).append(": ");
+            data.append("- ").append(change.changedAt().toLocalDate()).append(": ");
             
-            switch (action) {
+            switch (change.action()) {
                 case "C":
                     data.append("Created new habit: ").append(habitTitle);
                     break;
@@ -159,56 +481,9 @@ public class HabitAnalysisService {
         
         return data.toString();
     }
-      private String generateAIRecommendations(String analysisData) {
-        try {
-            log.info("Generating AI recommendations using service at: {}", habitAnalysisApiUrl);
-            String prompt = buildAnalysisPrompt(analysisData);
-            
-            // Prepare request body for Python AI service
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("prompt", prompt);
-            
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-              // Make API call to Python service
-            String url = habitAnalysisApiUrl + "/analyze-habits";
-            log.info("Making request to AI service: {}", url);
-            
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url, 
-                HttpMethod.POST, 
-                entity, 
-                new ParameterizedTypeReference<Map<String, Object>>() {}
-            );
-            
-            log.info("AI service response status: {}", response.getStatusCode());
-            
-            if (response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-                Boolean success = (Boolean) responseBody.get("success");
-                
-                log.info("AI service success status: {}", success);
-                
-                if (Boolean.TRUE.equals(success)) {
-                    String recommendations = (String) responseBody.get("recommendations");
-                    log.info("AI service returned recommendations of length: {}", 
-                        recommendations != null ? recommendations.length() : 0);
-                    return recommendations;
-                } else {
-                    log.error("AI service returned error: {}", responseBody.get("error"));
-                }
-            } else {
-                log.error("AI service returned null response body");
-            }
-            
-        } catch (Exception e) {
-            log.error("Error calling AI analysis service: {}", e.getMessage(), e);
-        }
-        
-        return null;
+    
+    private String generateAIRecommendations(String analysisData) {
+        return habitRecommendationClient.generateRecommendations(buildAnalysisPrompt(analysisData));
     }
     
     private String buildAnalysisPrompt(String analysisData) {
@@ -229,56 +504,39 @@ public class HabitAnalysisService {
               Format your response in a friendly, encouraging tone as if you're their personal coach.
             """.formatted(analysisData);
     }
-      private void createHabitRecommendationNotification(Users user, String recommendations) {
+    private void createHabitRecommendationNotification(String userId, String recommendations) {
         String title = "🎯 Personalized Habit Insights";
         
         try {
-            log.info("Creating notification for user: {} with title: {}", user.getUser_id(), title);
+            log.info("Creating notification for user: {} with title: {}", userId, title);
             
-            // Send email and save notification using NotificationsService
-            notificationsService.sendEmailAndSaveNotification(
-                user.getUser_id(), 
+            // Send email and save the notification, typed RECOMMENDATION right away
+            habitAnalysisMetrics.record(Phase.NOTIFICATION, () -> notificationsService.sendEmailAndSaveNotification(
+                userId, 
                 null, // No sender for system-generated notifications
                 title,
                 recommendations,
-                null // No specific link for habit recommendations
-            );
+                null, // No specific link for habit recommendations
+                NotificationType.RECOMMENDATION
+            ));
             
-            log.info("Successfully called NotificationsService for user: {}", user.getUser_id());
-            
-            // Update the notification type to RECOMMENDATION
-            // Find the most recent notification for this user and update its type
-            List<Notifications> userNotifications = notificationsRepository.findByReciever(user);
-            log.info("Found {} existing notifications for user: {}", userNotifications.size(), user.getUser_id());
-            
-            if (!userNotifications.isEmpty()) {
-                Notifications latestNotification = userNotifications.stream()
-                    .max((n1, n2) -> n1.getCreatedAt().compareTo(n2.getCreatedAt()))
-                    .orElse(null);
-                
-                if (latestNotification != null && latestNotification.getTitle().equals(title)) {
-                    latestNotification.setType(NotificationType.RECOMMENDATION);
-                    notificationsRepository.save(latestNotification);
-                    log.info("Updated notification type to RECOMMENDATION for user: {}", user.getUser_id());
-                } else {
-                    log.warn("Could not find matching notification to update type for user: {}", user.getUser_id());
-                }
-            } else {
-                log.warn("No notifications found for user after creating: {}", user.getUser_id());
-            }
-            
-            log.info("Successfully created habit recommendation notification and sent email for user: {}", user.getUser_id());
+            log.info("Successfully created habit recommendation notification and sent email for user: {}", userId);
         } catch (Exception e) {
-            log.error("Error creating notification for user {}: {}", user.getUser_id(), e.getMessage(), e);
+            log.error("Error creating notification for user {}: {}", userId, e.getMessage(), e);
             throw e; // Re-throw to be caught by the calling method
         }
     }
     
-    // Manual trigger for testing (can be called via API endpoint)
-    public void triggerHabitAnalysisForUser(String userId) {
-        Users user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        analyzeUserHabits(user);
+    // On-demand analysis of one user, run by HabitAnalysisJobService
+    public AnalysisOutcome triggerHabitAnalysisForUser(String userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        HabitAnalysisInput input = habitAnalysisInputLoader.load(List.of(userId), LocalDateTime.now().minusDays(7)).get(0);
+        // An explicit request always delivers something, even when the input is unchanged
+        AnalysisOutcome outcome = analyzeUserHabitsExclusively(input, UnchangedInputPolicy.REUSE, null);
+        habitAnalysisMetrics.outcome(Trigger.ON_DEMAND, outcome);
+        return outcome;
     }
     
     // Test method to debug notification issues
@@ -286,7 +544,7 @@ public class HabitAnalysisService {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            Users user = userRepository.findById(userId)
+            Users user = userRepository.findWithHabitsById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
             
             result.put("userId", userId);
@@ -295,11 +553,10 @@ public class HabitAnalysisService {
             result.put("habitCount", user.getUser_habits() != null ? user.getUser_habits().size() : 0);
             
             if (user.getUser_habits() != null && !user.getUser_habits().isEmpty()) {
-                LocalDateTime oneWeekAgo = LocalDateTime.now().minusDays(7);
-                List<Object[]> habitChanges = auditLogRepository.getHabitChangesForUser(user.getUser_id(), oneWeekAgo);
-                result.put("recentChanges", habitChanges.size());
+                HabitAnalysisInput input = habitAnalysisInputLoader.load(List.of(userId), LocalDateTime.now().minusDays(7)).get(0);
+                result.put("recentChanges", input.changes().size());
                 
-                String analysisData = prepareHabitAnalysisData(user, habitChanges);
+                String analysisData = prepareHabitAnalysisData(input);
                 result.put("analysisDataLength", analysisData.length());
                 result.put("analysisData", analysisData.substring(0, Math.min(200, analysisData.length())) + "...");
                 
@@ -311,7 +568,7 @@ public class HabitAnalysisService {
                 if (recommendations != null && !recommendations.trim().isEmpty()) {
                     // Test notification creation
                     try {
-                        createHabitRecommendationNotification(user, recommendations);
+                        createHabitRecommendationNotification(userId, recommendations);
                         result.put("notificationSent", true);
                     } catch (Exception e) {
                         result.put("notificationSent", false);
@@ -337,7 +594,7 @@ public class HabitAnalysisService {
     public Map<String, Object> getHabitStatistics(String userId) {
         Map<String, Object> stats = new HashMap<>();
         
-        Users user = userRepository.findById(userId)
+        Users user = userRepository.findWithHabitsById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
             
         // Basic habit statistics
@@ -368,14 +625,149 @@ public class HabitAnalysisService {
         return stats;
     }
     
-    // Helper method to convert database timestamp objects to LocalDateTime
-    private LocalDateTime convertToLocalDateTime(Object date) {
-        if (date instanceof java.sql.Timestamp ts) {
-            return ts.toLocalDateTime();
-        } else if (date instanceof LocalDateTime dt) {
-            return dt;
-        } else {
-            throw new IllegalStateException("Unexpected type for date: " + date.getClass());
+    // Progress of one claimed shard. Users finish out of order in parallel mode, so the checkpoint
+    // is the highest dispatched user below the lowest one still in flight: everything up to it is done
+    private static class ShardProgress {
+        private final HabitAnalysisShard shard;
+        private final RunTracker tracker;
+        private final ConcurrentSkipListSet<String> dispatched = new ConcurrentSkipListSet<>();
+        private final ConcurrentSkipListSet<String> inFlight = new ConcurrentSkipListSet<>();
+        private final AtomicInteger processed;
+        private final AtomicInteger notified;
+        private final AtomicInteger failed;
+        private volatile String checkpoint;
+        
+        ShardProgress(HabitAnalysisShard shard, RunTracker tracker) {
+            this.shard = shard;
+            this.tracker = tracker;
+            this.checkpoint = shard.getLastUserId() != null ? shard.getLastUserId() : shard.getLowerBound();
+            this.processed = new AtomicInteger(valueOf(shard.getProcessedCount()));
+            this.notified = new AtomicInteger(valueOf(shard.getNotifiedCount()));
+            this.failed = new AtomicInteger(valueOf(shard.getFailedCount()));
+        }
+        
+        void started(String userId) {
+            inFlight.add(userId);
+            dispatched.add(userId);
+        }
+        
+        void finished(String userId, AnalysisOutcome outcome) {
+            tracker.record(outcome);
+            processed.incrementAndGet();
+            if (outcome == AnalysisOutcome.NOTIFIED) {
+                notified.incrementAndGet();
+            } else if (outcome == AnalysisOutcome.FAILED) {
+                failed.incrementAndGet();
+            }
+            inFlight.remove(userId);
+        }
+        
+        // Copies the checkpoint onto the shard; called from the page loop only
+        void saveTo(HabitAnalysisShard target) {
+            String oldestInFlight = inFlight.isEmpty() ? null : inFlight.first();
+            String done = oldestInFlight == null
+                ? (dispatched.isEmpty() ? null : dispatched.last())
+                : dispatched.lower(oldestInFlight);
+            if (done != null) {
+                checkpoint = done;
+                dispatched.headSet(done, true).clear();
+            }
+            target.setLastUserId(checkpoint);
+            target.setProcessedCount(processed.get());
+            target.setNotifiedCount(notified.get());
+            target.setFailedCount(failed.get());
+        }
+        
+        private static int valueOf(Integer count) {
+            return count != null ? count : 0;
         }
     }
+    
+    // Thread-safe counters for a single analysis run
+    private class RunTracker {
+        private volatile boolean fullRefresh;
+        private final AtomicInteger shardsCompleted = new AtomicInteger();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger notified = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger reused = new AtomicInteger();
+        private final AtomicInteger noHabits = new AtomicInteger();
+        
+        RunTracker() {
+            // Peak usage is tracked by the JVM per memory pool; reset it so the summary reports this run only
+            heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+        }
+        
+        // Current shard, for progress reports
+        private volatile HabitAnalysisShard currentShard;
+        private volatile long currentShardUsers;
+        private volatile int processedBeforeShard;
+        
+        void startShard(HabitAnalysisShard shard, long users) {
+            processedBeforeShard = processed.get();
+            currentShardUsers = users;
+            currentShard = shard;
+        }
+        
+        void record(AnalysisOutcome outcome) {
+            habitAnalysisMetrics.outcome(Trigger.SCHEDULED, outcome);
+            processed.incrementAndGet();
+            switch (outcome) {
+                case NOTIFIED -> notified.incrementAndGet();
+                case FAILED -> failed.incrementAndGet();
+                case REUSED -> reused.incrementAndGet();
+                case UNCHANGED -> {
+                    unchanged.incrementAndGet();
+                    skipped.incrementAndGet();
+                }
+                case NO_HABITS -> {
+                    noHabits.incrementAndGet();
+                    skipped.incrementAndGet();
+                }
+                default -> skipped.incrementAndGet();
+            }
+        }
+        
+        HabitAnalysisSummaryDTO toSummary() {
+            long wallClockMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            
+            HabitAnalysisSummaryDTO summary = new HabitAnalysisSummaryDTO();
+            summary.setStartedAt(startedAt);
+            summary.setFinishedAt(LocalDateTime.now());
+            summary.setMode(parallelAnalysis ? "parallel" : "sequential");
+            summary.setFullRefresh(fullRefresh);
+            summary.setNodeId(habitAnalysisLeaseService.nodeId());
+            summary.setShardsCompleted(shardsCompleted.get());
+            summary.setMaxInFlight(parallelAnalysis ? maxInFlight : 1);
+            summary.setUsersProcessed(processed.get());
+            summary.setNotified(notified.get());
+            summary.setSkipped(skipped.get());
+            summary.setFailed(failed.get());
+            summary.setUnchanged(unchanged.get());
+            summary.setReused(reused.get());
+            // Share of analyzable users (those with habits) that needed no AI call
+            int analyzable = processed.get() - noHabits.get();
+            summary.setSkipReuseRatio(analyzable > 0
+                ? Math.round((unchanged.get() + reused.get()) * 10000.0 / analyzable) / 10000.0
+                : 0.0);
+            summary.setWallClockMillis(wallClockMillis);
+            summary.setPeakHeapUsedBytes(heapPools().stream()
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum());
+            summary.setThroughputPerSecond(wallClockMillis > 0
+                ? Math.round(processed.get() * 100000.0 / wallClockMillis) / 100.0
+                : 0.0);
+            return summary;
+        }
+    }
+    
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+            .toList();
+    }
 }
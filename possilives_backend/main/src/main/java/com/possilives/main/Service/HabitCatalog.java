@@ -0,0 +1,264 @@
+package com.possilives.main.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.possilives.main.Model.Big_Five;
+import com.possilives.main.Model.Habit;
+import com.possilives.main.Repository.HabitRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// In-memory copy of the habit catalog for recommendations. Readers use the current snapshot
+// without locking; writers build a new snapshot and swap it in. Every habit's traits are kept as
+// a unit vector over TRAITS in one flat float[], so scoring the catalog against a personality is
+// a pass of dot products feeding a bounded heap.
+// Habits created on this instance are added right away; the periodic refresh picks up the rest
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HabitCatalog {
+  // Dimension i of a trait vector stands for TRAITS.get(i)
+  public static final List<String> TRAITS = List.of(
+      "OPENNESS", "CONSCIENTIOUSNESS", "EXTRAVERSION", "AGREEABLENESS", "NEUROTICISM");
+  private static final int DIMENSIONS = TRAITS.size();
+
+  private final HabitRepository habitRepository;
+
+  private volatile Snapshot snapshot;
+  // Version of the last snapshot swapped in; guarded by this
+  private long versions;
+
+  // Habits with at least one trait ranked by how well their traits fit personality (one score
+  // per trait, in TRAITS order), best first and catalog order among equals; the limit habits
+  // from offset on. Only offset + limit habits are kept while ranking
+  public List<Habit> top(double[] personality, int offset, int limit) {
+    return current().top(personality, offset, limit);
+  }
+
+  // Changes whenever the catalog content changes (habits, their text or traits), so results
+  // derived from the catalog can tell they are outdated. A refresh that finds the same catalog
+  // keeps the version
+  public long version() {
+    return current().version;
+  }
+
+  // Adds a habit that was just saved, without reloading the catalog
+  public synchronized void add(Habit habit) {
+    if (snapshot != null) {
+      snapshot = snapshot.with(habit, versions + 1);
+      versions = snapshot.version;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${habit.catalog.refresh-ms:600000}")
+  public synchronized void refresh() {
+    Snapshot loaded = new Snapshot(habitRepository.findAll(), versions + 1);
+    if (snapshot != null && snapshot.sameContentAs(loaded)) {
+      log.debug("Habit catalog unchanged with {} habits", loaded.habits.size());
+      return;
+    }
+    snapshot = loaded;
+    versions = loaded.version;
+    log.debug("Habit catalog loaded with {} habits", snapshot.habits.size());
+  }
+
+  private Snapshot current() {
+    Snapshot current = snapshot;
+    if (current == null) {
+      synchronized (this) {
+        if (snapshot == null) {
+          refresh();
+        }
+        current = snapshot;
+      }
+    }
+    return current;
+  }
+
+  // Each known trait of the habit weighs the same; the vector has length 1, or is all zero
+  // when the habit has none
+  static void traitVector(List<Big_Five> traits, float[] vectors, int base) {
+    int count = 0;
+    if (traits != null) {
+      for (Big_Five trait : traits) {
+        int index = TRAITS.indexOf(trait.getTrait());
+        if (index >= 0 && vectors[base + index] == 0f) {
+          vectors[base + index] = 1f;
+          count++;
+        }
+      }
+    }
+    if (count > 1) {
+      float weight = (float) (1 / Math.sqrt(count));
+      for (int t = 0; t < DIMENSIONS; t++) {
+        vectors[base + t] *= weight;
+      }
+    }
+  }
+
+  private static final class Snapshot {
+    private final long version;
+    private final List<Habit> habits;
+    private final float[] vectors;
+    // Indexes of the habits with at least one known trait, the only ones that are ranked
+    private final int[] scored;
+
+    Snapshot(List<Habit> habits, long version) {
+      this.version = version;
+      this.habits = List.copyOf(habits);
+      this.vectors = new float[this.habits.size() * DIMENSIONS];
+      int[] withTraits = new int[this.habits.size()];
+      int count = 0;
+      for (int i = 0; i < this.habits.size(); i++) {
+        traitVector(this.habits.get(i).getTraits(), vectors, i * DIMENSIONS);
+        for (int t = 0; t < DIMENSIONS; t++) {
+          if (vectors[i * DIMENSIONS + t] != 0f) {
+            withTraits[count++] = i;
+            break;
+          }
+        }
+      }
+      this.scored = Arrays.copyOf(withTraits, count);
+    }
+
+    // Same habits in the same order, with the same text and trait vectors
+    boolean sameContentAs(Snapshot other) {
+      if (habits.size() != other.habits.size() || !Arrays.equals(vectors, other.vectors)) {
+        return false;
+      }
+      for (int i = 0; i < habits.size(); i++) {
+        Habit habit = habits.get(i);
+        Habit otherHabit = other.habits.get(i);
+        if (!Objects.equals(habit.getHabit_id(), otherHabit.getHabit_id())
+            || !Objects.equals(habit.getTitle(), otherHabit.getTitle())
+            || !Objects.equals(habit.getDescription(), otherHabit.getDescription())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    Snapshot with(Habit habit, long nextVersion) {
+      if (habits.stream().anyMatch(existing -> existing.getHabit_id().equals(habit.getHabit_id()))) {
+        return this;
+      }
+      List<Habit> next = new ArrayList<>(habits.size() + 1);
+      next.addAll(habits);
+      next.add(habit);
+      return new Snapshot(next, nextVersion);
+    }
+
+    List<Habit> top(double[] personality, int offset, int limit) {
+      int k = Math.min(offset + limit, scored.length);
+      if (k <= offset) {
+        return List.of();
+      }
+      float[] user = new float[DIMENSIONS];
+      for (int t = 0; t < DIMENSIONS; t++) {
+        user[t] = (float) personality[t];
+      }
+
+      TopK best = new TopK(k);
+      for (int i : scored) {
+        int base = i * DIMENSIONS;
+        float score = 0f;
+        for (int t = 0; t < DIMENSIONS; t++) {
+          score += user[t] * vectors[base + t];
+        }
+        best.offer(i, score);
+      }
+
+      int[] ranked = best.drainBestFirst();
+      List<Habit> page = new ArrayList<>(ranked.length - offset);
+      for (int n = offset; n < ranked.length; n++) {
+        page.add(habits.get(ranked[n]));
+      }
+      return page;
+    }
+  }
+
+  // Min-heap of the k best (index, score) pairs seen so far, worst at the root. Lower index wins
+  // a tie, and since indexes are offered in increasing order an equal score never displaces
+  private static final class TopK {
+    private final int[] indexes;
+    private final float[] scores;
+    private int size;
+
+    TopK(int k) {
+      indexes = new int[k];
+      scores = new float[k];
+    }
+
+    void offer(int index, float score) {
+      if (size < indexes.length) {
+        indexes[size] = index;
+        scores[size] = score;
+        siftUp(size++);
+      } else if (score > scores[0]) {
+        indexes[0] = index;
+        scores[0] = score;
+        siftDown(0);
+      }
+    }
+
+    int[] drainBestFirst() {
+      int[] ranked = new int[size];
+      while (size > 0) {
+        ranked[size - 1] = indexes[0];
+        size--;
+        indexes[0] = indexes[size];
+        scores[0] = scores[size];
+        siftDown(0);
+      }
+      return ranked;
+    }
+
+    private boolean worse(int a, int b) {
+      return scores[a] < scores[b] || (scores[a] == scores[b] && indexes[a] > indexes[b]);
+    }
+
+    private void siftUp(int n) {
+      while (n > 0) {
+        int parent = (n - 1) >>> 1;
+        if (!worse(n, parent)) {
+          return;
+        }
+        swap(n, parent);
+        n = parent;
+      }
+    }
+
+    private void siftDown(int n) {
+      while (true) {
+        int child = 2 * n + 1;
+        if (child >= size) {
+          return;
+        }
+        if (child + 1 < size && worse(child + 1, child)) {
+          child++;
+        }
+        if (!worse(child, n)) {
+          return;
+        }
+        swap(n, child);
+        n = child;
+      }
+    }
+
+    private void swap(int a, int b) {
+      int index = indexes[a];
+      indexes[a] = indexes[b];
+      indexes[b] = index;
+      float score = scores[a];
+      scores[a] = scores[b];
+      scores[b] = score;
+    }
+  }
+}
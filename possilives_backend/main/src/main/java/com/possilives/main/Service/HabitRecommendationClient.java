@@ -0,0 +1,255 @@
+package com.possilives.main.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.possilives.main.Service.HabitAnalysisMetrics.Phase;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Client of the AI service's habit analysis endpoints. Concurrent callers are collected into
+// batches of up to batch-size prompts, or whatever arrived within batch-wait-ms, and sent as one
+// request to /analyze-habits/batch; every caller blocks until its own answer is back. Batches
+// are always sent from a caller thread: the one that fills the batch, or for a batch cut off by
+// the timer, its first caller. A failed batch, or a failed item of a batch, makes its callers
+// fall back to single /analyze-habits requests, and a service without the batch endpoint is
+// only sent single requests for batch-retry-minutes
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HabitRecommendationClient {
+  private final HabitAnalysisMetrics habitAnalysisMetrics;
+
+  @Value("${habit.analysis.api.url:http://localhost:5001}")
+  private String habitAnalysisApiUrl;
+  // 1 disables batching
+  @Value("${habit.analysis.batch-size:8}")
+  private int batchSize;
+  @Value("${habit.analysis.batch-wait-ms:50}")
+  private long batchWaitMillis;
+  @Value("${habit.analysis.batch-retry-minutes:10}")
+  private long batchRetryMinutes;
+  @Value("${habit.analysis.api.connect-timeout-ms:5000}")
+  private long connectTimeoutMillis = 5000;
+  // Covers a whole batch, so it is well above the time of one prompt
+  @Value("${habit.analysis.api.read-timeout-ms:120000}")
+  private long readTimeoutMillis = 120000;
+
+  private final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+  private final RestTemplate restTemplate = new RestTemplate(requestFactory);
+  private final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "habit-analysis-batcher");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Object lock = new Object();
+  private List<PendingPrompt> pending = new ArrayList<>();
+  private ScheduledFuture<?> pendingFlush;
+  // Set when the service has no batch endpoint; batching resumes at batchRetryAt (nanoTime)
+  private volatile boolean batchUnavailable;
+  private volatile long batchRetryAt;
+
+  // flush is completed with the batch when the timer cuts it off and this caller has to send it
+  private record PendingPrompt(String prompt, CompletableFuture<String> result,
+      CompletableFuture<List<PendingPrompt>> flush) {
+  }
+
+  @PostConstruct
+  public void configureTimeouts() {
+    requestFactory.setConnectTimeout(Duration.ofMillis(connectTimeoutMillis));
+    requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMillis));
+  }
+
+  // Returns the recommendations for the prompt, or null if the AI service produced none
+  public String generateRecommendations(String prompt) {
+    if (batchSize <= 1 || (batchUnavailable && System.nanoTime() - batchRetryAt < 0)) {
+      return requestSingle(prompt);
+    }
+
+    PendingPrompt pendingPrompt = new PendingPrompt(prompt, new CompletableFuture<>(), new CompletableFuture<>());
+    List<PendingPrompt> fullBatch = null;
+    boolean first = false;
+    synchronized (lock) {
+      pending.add(pendingPrompt);
+      if (pending.size() >= batchSize) {
+        fullBatch = takePending();
+      } else if (pending.size() == 1) {
+        first = true;
+        pendingFlush = batchTimer.schedule(this::flushPending, batchWaitMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+    // The caller that fills a batch sends it
+    if (fullBatch != null) {
+      sendBatch(fullBatch);
+    } else if (first) {
+      // Either another caller fills the batch, or the timer hands it back to be sent from here
+      CompletableFuture.anyOf(pendingPrompt.result(), pendingPrompt.flush()).handle((done, error) -> done).join();
+      List<PendingPrompt> timedBatch = pendingPrompt.flush().getNow(null);
+      if (timedBatch != null) {
+        sendBatch(timedBatch);
+      }
+    }
+
+    try {
+      return pendingPrompt.result().join();
+    } catch (CompletionException e) {
+      habitAnalysisMetrics.aiRetry();
+      return requestSingle(prompt);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    flushPending();
+    batchTimer.shutdown();
+  }
+
+  // Caller holds the lock
+  private List<PendingPrompt> takePending() {
+    List<PendingPrompt> batch = pending;
+    pending = new ArrayList<>();
+    if (pendingFlush != null) {
+      pendingFlush.cancel(false);
+      pendingFlush = null;
+    }
+    return batch;
+  }
+
+  // Hands the pending batch to its first caller, which is waiting for it
+  private void flushPending() {
+    List<PendingPrompt> batch;
+    synchronized (lock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = takePending();
+    }
+    batch.get(0).flush().complete(batch);
+  }
+
+  // Completes every prompt of the batch; exceptionally when its caller should retry it on its own
+  private void sendBatch(List<PendingPrompt> batch) {
+    List<Map<String, Object>> requests = new ArrayList<>();
+    for (int i = 0; i < batch.size(); i++) {
+      requests.add(Map.of("id", String.valueOf(i), "prompt", batch.get(i).prompt()));
+    }
+
+    try {
+      String url = habitAnalysisApiUrl + "/analyze-habits/batch";
+      log.info("Sending batch of {} prompts to AI service: {}", batch.size(), url);
+      habitAnalysisMetrics.aiBatch(batch.size());
+      ResponseEntity<Map<String, Object>> response = habitAnalysisMetrics.time(Phase.AI_REQUEST, () -> restTemplate.exchange(
+          url,
+          HttpMethod.POST,
+          jsonEntity(Map.of("requests", requests)),
+          new ParameterizedTypeReference<Map<String, Object>>() {}));
+
+      Map<String, Object> responseBody = response.getBody();
+      if (responseBody == null || !(responseBody.get("results") instanceof List<?> results)) {
+        throw new IllegalStateException("AI service returned no batch results");
+      }
+
+      Map<String, String> recommendationsById = new HashMap<>();
+      for (Object item : results) {
+        if (item instanceof Map<?, ?> result && Boolean.TRUE.equals(result.get("success"))) {
+          recommendationsById.put(String.valueOf(result.get("id")), (String) result.get("recommendations"));
+        } else if (item instanceof Map<?, ?> result) {
+          log.error("AI service returned error for batch item {}: {}", result.get("id"), result.get("error"));
+        }
+      }
+      // Items the service failed or left out are retried on their own, like a failed batch
+      for (int i = 0; i < batch.size(); i++) {
+        String id = String.valueOf(i);
+        if (recommendationsById.containsKey(id)) {
+          batch.get(i).result().complete(recommendationsById.get(id));
+        } else {
+          batch.get(i).result().completeExceptionally(
+              new IllegalStateException("AI service returned no result for batch item " + id));
+        }
+      }
+    } catch (Exception e) {
+      if (e instanceof HttpClientErrorException clientError
+          && (clientError.getStatusCode() == HttpStatus.NOT_FOUND
+              || clientError.getStatusCode() == HttpStatus.METHOD_NOT_ALLOWED)) {
+        batchRetryAt = System.nanoTime() + TimeUnit.MINUTES.toNanos(batchRetryMinutes);
+        batchUnavailable = true;
+        log.warn("AI service has no batch endpoint, sending single requests for {} minutes", batchRetryMinutes);
+      } else {
+        log.error("Error calling AI batch analysis service, falling back to single requests: {}", e.getMessage());
+      }
+      batch.forEach(pendingPrompt -> pendingPrompt.result().completeExceptionally(e));
+    }
+  }
+
+  private String requestSingle(String prompt) {
+    try {
+      log.info("Generating AI recommendations using service at: {}", habitAnalysisApiUrl);
+      String url = habitAnalysisApiUrl + "/analyze-habits";
+      log.info("Making request to AI service: {}", url);
+
+      habitAnalysisMetrics.aiBatch(1);
+      ResponseEntity<Map<String, Object>> response = habitAnalysisMetrics.time(Phase.AI_REQUEST, () -> restTemplate.exchange(
+          url,
+          HttpMethod.POST,
+          jsonEntity(Map.of("prompt", prompt)),
+          new ParameterizedTypeReference<Map<String, Object>>() {}));
+
+      log.info("AI service response status: {}", response.getStatusCode());
+
+      if (response.getBody() != null) {
+        Map<String, Object> responseBody = response.getBody();
+        Boolean success = (Boolean) responseBody.get("success");
+
+        log.info("AI service success status: {}", success);
+
+        if (Boolean.TRUE.equals(success)) {
+          String recommendations = (String) responseBody.get("recommendations");
+          log.info("AI service returned recommendations of length: {}",
+              recommendations != null ? recommendations.length() : 0);
+          return recommendations;
+        } else {
+          log.error("AI service returned error: {}", responseBody.get("error"));
+        }
+      } else {
+        log.error("AI service returned null response body");
+      }
+
+    } catch (Exception e) {
+      log.error("Error calling AI analysis service: {}", e.getMessage(), e);
+    }
+
+    return null;
+  }
+
+  private static HttpEntity<Map<String, Object>> jsonEntity(Map<String, Object> body) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    return new HttpEntity<>(body, headers);
+  }
+}
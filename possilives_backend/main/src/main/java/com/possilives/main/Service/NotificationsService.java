@@ -4,6 +4,7 @@ import java.sql.Date;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Locale;
 
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -16,15 +17,20 @@ import com.possilives.main.Model.Users;
 import com.possilives.main.Repository.NotificationsRepository;
 import com.possilives.main.Repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class NotificationsService {
   private final NotificationsRepository notificationsRepository;
   private final UserRepository userRepository;
   private final JavaMailSender mailSender;
+  private final MeterRegistry meterRegistry;
   
   // This method is now handled by HabitAnalysisService
   // @Scheduled(cron = "0 0 8,20 * * *") // Runs every 12 hours at 8 AM and 8 PM
@@ -58,31 +64,42 @@ public class NotificationsService {
 
   @Auditable
   public void sendEmailAndSaveNotification(String recieveToId, String sendById, String title, String description,String link) {
+    sendEmailAndSaveNotification(recieveToId, sendById, title, description, link, NotificationType.SYSTEM);
+  }
+
+  // Also audited, for callers that pick the type; the overload above calls this one on the target
+  // itself, so that path is still recorded once
+  @Auditable
+  public void sendEmailAndSaveNotification(String recieveToId, String sendById, String title, String description, String link,
+      NotificationType type) {
     // Users fromUserId = userRepository.findById(sendById)
     //     .orElseThrow(() -> new RuntimeException("User not found"));
     Users toUserId = userRepository.findById(recieveToId)
         .orElseThrow(() -> new RuntimeException("User not found"));
 
     // Send Email
-    sendEmail(toUserId.getEmail(), title, description, link);    // Save Notification
+    Tags tags = Tags.of("type", type.name().toLowerCase(Locale.ROOT));
+    meterRegistry.timer("notifications.email.send", tags)
+        .record(() -> sendEmail(toUserId.getEmail(), title, description, link));    // Save Notification
     // 2. Save the notification in the database
     Notifications notification = new Notifications();
     notification.setTitle(title);
     notification.setDescription(description);
     notification.setSentEmail(true);
     notification.setSeen(false);
+    notification.setType(type);
     // Use Malaysia timezone for consistent time
     notification.setCreatedAt(ZonedDateTime.now(ZoneId.of("Asia/Kuala_Lumpur")).toLocalDateTime());
     notification.setReciever(toUserId); // Assuming email as user ID for simplicity
     // notification.setSender(fromUserId);
 
-    System.out.println("Sending email to "+ toUserId.getEmail());
+    log.debug("Sending email to {}", toUserId.getEmail());
 
-    notificationsRepository.save(notification);
+    meterRegistry.timer("notifications.save", tags).record(() -> notificationsRepository.save(notification));
   }
 
   // Update Notification Read Status
-  @Auditable
+  @Auditable(targetIdArg = 1)
   public void updateNotifcationReadStatus(String userId, String notifId) {
     Users reciever = userRepository.findById(userId)
         .orElseThrow(() -> new RuntimeException("User not found"));
@@ -0,0 +1,124 @@
+package com.possilives.main.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.possilives.main.DTO.PlatformStatisticsDTO;
+import com.possilives.main.Repository.AuditDailyRollupRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Platform-wide daily statistics over audit_daily_rollup. A range is split into partitions of
+// partition-days days, which are aggregated in parallel on auditAnalyticsExecutor and merged.
+// Closed days no longer change, so they are cached and only the open days are queried again
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlatformAnalyticsService {
+  private final AuditDailyRollupRepository auditDailyRollupRepository;
+  private final ThreadPoolExecutor auditAnalyticsExecutor;
+
+  private final Map<LocalDate, PlatformStatisticsDTO> closedDays = new ConcurrentHashMap<>();
+
+  @Value("${audit.analytics.partition-days:31}")
+  private int partitionDays;
+
+  // A day counts as closed this long after midnight, once the audit writer and the read
+  // counters have flushed its last events
+  @Value("${audit.analytics.closed-grace-minutes:5}")
+  private long closedGraceMinutes;
+
+  // One entry per day of [fromDate, toDate), in date order; days without activity are zero
+  public List<PlatformStatisticsDTO> getDailyStatistics(LocalDate fromDate, LocalDate toDate) {
+    if (!fromDate.isBefore(toDate)) {
+      throw new IllegalArgumentException("fromDate must be before toDate");
+    }
+    LocalDate firstOpenDay = firstOpenDay();
+    Map<LocalDate, PlatformStatisticsDTO> days = new TreeMap<>();
+
+    // Cached days are taken as they are; the gaps between them become partitions
+    List<CompletableFuture<List<PlatformStatisticsDTO>>> partitions = new ArrayList<>();
+    LocalDate partitionStart = null;
+    for (LocalDate day = fromDate; day.isBefore(toDate); day = day.plusDays(1)) {
+      PlatformStatisticsDTO cached = day.isBefore(firstOpenDay) ? closedDays.get(day) : null;
+      if (cached != null) {
+        days.put(day, cached);
+        if (partitionStart != null) {
+          partitions.add(aggregateAsync(partitionStart, day));
+          partitionStart = null;
+        }
+      } else if (partitionStart == null) {
+        partitionStart = day;
+      } else if (partitionStart.plusDays(partitionDays).equals(day)) {
+        partitions.add(aggregateAsync(partitionStart, day));
+        partitionStart = day;
+      }
+    }
+    if (partitionStart != null) {
+      partitions.add(aggregateAsync(partitionStart, toDate));
+    }
+
+    try {
+      for (CompletableFuture<List<PlatformStatisticsDTO>> partition : partitions) {
+        for (PlatformStatisticsDTO day : partition.join()) {
+          days.put(day.getDate(), day);
+          if (day.getDate().isBefore(firstOpenDay)) {
+            closedDays.put(day.getDate(), day);
+          }
+        }
+      }
+    } catch (CompletionException e) {
+      partitions.forEach(partition -> partition.cancel(false));
+      throw e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+    log.debug("Platform statistics for {} days, {} partitions queried", days.size(), partitions.size());
+    return new ArrayList<>(days.values());
+  }
+
+  // Forgets cached days from fromDate on, after their rollups were rebuilt
+  public void evictFrom(LocalDate fromDate) {
+    closedDays.keySet().removeIf(day -> !day.isBefore(fromDate));
+  }
+
+  private CompletableFuture<List<PlatformStatisticsDTO>> aggregateAsync(LocalDate from, LocalDate to) {
+    return CompletableFuture.supplyAsync(() -> aggregate(from, to), auditAnalyticsExecutor);
+  }
+
+  private List<PlatformStatisticsDTO> aggregate(LocalDate from, LocalDate to) {
+    Map<LocalDate, PlatformStatisticsDTO> days = new TreeMap<>();
+    for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+      days.put(day, new PlatformStatisticsDTO(day, 0L, 0L, 0L));
+    }
+    for (Object[] row : auditDailyRollupRepository.aggregatePlatformDays(from, to)) {
+      LocalDate date = toLocalDate(row[0]);
+      days.put(date, new PlatformStatisticsDTO(date, ((Number) row[1]).longValue(),
+          ((Number) row[2]).longValue(), ((Number) row[3]).longValue()));
+    }
+    return new ArrayList<>(days.values());
+  }
+
+  private LocalDate firstOpenDay() {
+    return LocalDateTime.now().minusMinutes(closedGraceMinutes).toLocalDate();
+  }
+
+  private LocalDate toLocalDate(Object date) {
+    if (date instanceof java.sql.Date sqlDate) {
+      return sqlDate.toLocalDate();
+    } else if (date instanceof LocalDate localDate) {
+      return localDate;
+    }
+    throw new IllegalStateException("Unexpected type for date: " + date.getClass());
+  }
+}
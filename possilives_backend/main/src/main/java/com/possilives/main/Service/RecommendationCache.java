@@ -0,0 +1,129 @@
+package com.possilives.main.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.possilives.main.Model.Habit;
+import com.possilives.main.Repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Computed recommendation rankings per user, so reloading the recommendations page doesn't
+// load the user's personalities and rank the catalog again. An entry is keyed on the user's
+// recommendation version in the database, which every personality or habit change bumps, so a
+// change made through another instance is seen here too; a hit costs one lookup by primary key.
+// Entries also stop matching as soon as the catalog snapshot changes, expire after
+// cache-ttl-seconds, and the oldest go first once cache-size users are cached
+@Component
+public class RecommendationCache {
+  private final HabitCatalog habitCatalog;
+  private final UserRepository userRepository;
+  private final Counter hits;
+  private final Counter misses;
+
+  @Value("${habit.recommendation.cache-size:10000}")
+  private int maxEntries = 10000;
+
+  @Value("${habit.recommendation.cache-ttl-seconds:600}")
+  private long cacheTtlSeconds = 600;
+
+  private record CachedRanking(List<Habit> habits, long userVersion, long catalogVersion, long expiresAtNanos) {
+  }
+
+  private final Map<String, CachedRanking> rankings = new ConcurrentHashMap<>();
+
+  public RecommendationCache(HabitCatalog habitCatalog, UserRepository userRepository, MeterRegistry meterRegistry) {
+    this.habitCatalog = habitCatalog;
+    this.userRepository = userRepository;
+    this.hits = Counter.builder("habit.recommendation.cache")
+        .description("Recommendation requests by cache result")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    this.misses = Counter.builder("habit.recommendation.cache")
+        .description("Recommendation requests by cache result")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder("habit.recommendation.cache.size", rankings, Map::size)
+        .description("Users with a cached recommendation ranking")
+        .register(meterRegistry);
+  }
+
+  // The user's cached ranking, or the one load computes. Exceptions from load are not cached.
+  // The versions are read before load runs, so a ranking computed across a change is stored
+  // under the old version and never served
+  public List<Habit> get(String userId, Supplier<List<Habit>> load) {
+    long now = System.nanoTime();
+    long catalogVersion = habitCatalog.version();
+    Optional<Long> userVersion = userRepository.findRecommendationVersionById(userId);
+    if (userVersion.isEmpty()) {
+      // Unknown user; let load report it
+      rankings.remove(userId);
+      return load.get();
+    }
+    CachedRanking cached = rankings.get(userId);
+    if (cached != null && cached.userVersion() == userVersion.get() && cached.catalogVersion() == catalogVersion
+        && cached.expiresAtNanos() - now > 0) {
+      hits.increment();
+      return cached.habits();
+    }
+    misses.increment();
+
+    List<Habit> habits = List.copyOf(load.get());
+    if (rankings.size() >= maxEntries && !rankings.containsKey(userId)) {
+      makeRoom(now);
+    }
+    rankings.put(userId, new CachedRanking(habits, userVersion.get(), catalogVersion,
+        now + Duration.ofSeconds(cacheTtlSeconds).toNanos()));
+    return habits;
+  }
+
+  // Call with every change to the user's personalities or habits. Bumps the user's version in
+  // the current transaction, which invalidates the ranking on every instance once it commits, and
+  // frees this instance's entry after the commit (right away outside a transaction)
+  public void invalidateAfterCommit(String userId) {
+    userRepository.bumpRecommendationVersion(userId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          rankings.remove(userId);
+        }
+      });
+    } else {
+      rankings.remove(userId);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${habit.recommendation.cache-cleanup-ms:300000}")
+  public void evictExpired() {
+    long now = System.nanoTime();
+    rankings.values().removeIf(cached -> cached.expiresAtNanos() - now <= 0);
+  }
+
+  // Expired entries first, then the oldest until a tenth of the capacity is free again
+  private synchronized void makeRoom(long now) {
+    rankings.values().removeIf(cached -> cached.expiresAtNanos() - now <= 0);
+    int excess = rankings.size() - maxEntries * 9 / 10;
+    if (excess > 0) {
+      rankings.entrySet().stream()
+          .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAtNanos()))
+          .limit(excess)
+          .map(Map.Entry::getKey)
+          .toList()
+          .forEach(rankings::remove);
+    }
+  }
+}
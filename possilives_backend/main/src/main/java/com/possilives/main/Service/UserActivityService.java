@@ -0,0 +1,57 @@
+package com.possilives.main.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.possilives.main.Repository.HabitAnalysisStateRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// Tracks which users changed analysis-relevant data since their last habit analysis.
+// Marks are collected in memory (repeated writes by the same user collapse into one entry)
+// and flushed to habit_analysis_state.last_activity_at in the background
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserActivityService {
+  private final HabitAnalysisStateRepository habitAnalysisStateRepository;
+
+  private final Map<String, LocalDateTime> pendingActivity = new ConcurrentHashMap<>();
+
+  public void markDirty(String userId) {
+    if (userId == null) {
+      return;
+    }
+    keepLatest(userId, LocalDateTime.now());
+  }
+
+  private void keepLatest(String userId, LocalDateTime activityAt) {
+    pendingActivity.merge(userId, activityAt, (previous, current) -> current.isAfter(previous) ? current : previous);
+  }
+
+  @Scheduled(fixedDelayString = "${habit.analysis.activity-flush-ms:10000}")
+  public void flush() {
+    for (Map.Entry<String, LocalDateTime> entry : pendingActivity.entrySet()) {
+      // Only drop the mark if no newer one arrived in the meantime
+      if (pendingActivity.remove(entry.getKey(), entry.getValue())) {
+        try {
+          habitAnalysisStateRepository.recordActivity(entry.getKey(), entry.getValue());
+        } catch (Exception e) {
+          log.error("Failed to record activity for user {}: {}", entry.getKey(), e.getMessage());
+          keepLatest(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flush();
+  }
+}
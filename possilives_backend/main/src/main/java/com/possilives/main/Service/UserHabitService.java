@@ -6,17 +6,19 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import com.possilives.main.Audit.Auditable;
 import com.possilives.main.DTO.UserHabitCreateDTO;
-import com.possilives.main.Model.Big_Five;
 import com.possilives.main.Model.Habit;
 import com.possilives.main.Model.Personality;
 import com.possilives.main.Model.User_Habits;
 import com.possilives.main.Model.Users;
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
 import com.possilives.main.Repository.HabitRepository;
 import com.possilives.main.Repository.UserHabitRepository;
 import com.possilives.main.Exception.HabitValidationException;
@@ -27,60 +29,60 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class UserHabitService {
+  // The latest personality is the newest date, then the highest id, with missing dates oldest;
+  // the same rule as PersonalityRepository.findLatestScoresForUsers
+  private static final Comparator<Personality> LATEST_PERSONALITY = Comparator
+      .comparing(Personality::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Personality::getPersonality_id, Comparator.nullsFirst(Comparator.naturalOrder()));
+
   private final HabitRepository habitRepository;
   private final UserRepository userRepository;
   private final UserHabitRepository userHabitRepository;
   private final HabitValidationService habitValidationService;
+  private final UserActivityService userActivityService;
+  private final HabitCatalog habitCatalog;
+  private final RecommendationCache recommendationCache;
+
+  @Value("${habit.recommendation.max-page-size:100}")
+  private int maxPageSize = 100;
+
+  // Length of the ranking cached per user
+  @Value("${habit.recommendation.cached-depth:100}")
+  private int cachedDepth = 100;
 
+  // Page page (from 0) of size habits, best fit first. Pages within the first cached-depth
+  // habits come from the user's cached ranking
   @Auditable
-  public List<Habit> getRecommendedHabits(String userId) {
+  public List<Habit> getRecommendedHabits(String userId, int page, int size) {
+    int pageSize = Math.max(1, Math.min(size, maxPageSize));
+    int offset = (int) Math.min((long) Math.max(page, 0) * pageSize, Integer.MAX_VALUE - pageSize);
+    if (offset + pageSize > cachedDepth) {
+      return rankHabits(userId, offset, pageSize);
+    }
+    List<Habit> ranked = recommendationCache.get(userId, () -> rankHabits(userId, 0, cachedDepth));
+    return new ArrayList<>(ranked.subList(Math.min(offset, ranked.size()), Math.min(offset + pageSize, ranked.size())));
+  }
+
+  private List<Habit> rankHabits(String userId, int offset, int limit) {
     // Get user and latest personality
-    Users user = userRepository.findById(userId)
+    Users user = userRepository.findWithPersonalitiesById(userId)
         .orElseThrow(() -> new RuntimeException("User not found"));
 
     Personality latestPersonality = user.getPersonalities().stream()
-        .max(Comparator.comparing(Personality::getCreatedAt))
+        .max(LATEST_PERSONALITY)
         .orElseThrow(() -> new RuntimeException("No personality found"));
 
-    // Get user's dominant traits (>75)
-    List<String> dominantTraits = new ArrayList<>();
-    if (latestPersonality.getOpenness() > 75)
-      dominantTraits.add("OPENNESS");
-    if (latestPersonality.getConscientiousness() > 75)
-      dominantTraits.add("CONSCIENTIOUSNESS");
-    if (latestPersonality.getExtraversion() > 75)
-      dominantTraits.add("EXTRAVERSION");
-    if (latestPersonality.getAgreeableness() > 75)
-      dominantTraits.add("AGREEABLENESS");
-    if (latestPersonality.getNeuroticism() > 75)
-      dominantTraits.add("NEUROTICISM");
-
-    System.out.println("Dominant traits: " + dominantTraits);
-
-    // Get all habits and filter by matching traits
-    List<Habit> allHabits = habitRepository.findAll();
-
-    return allHabits.stream()
-        .filter(habit -> {
-          List<Big_Five> habitTraits = habit.getTraits();
-          return habitTraits.stream()
-              .anyMatch(trait -> dominantTraits.stream()
-                  .anyMatch(userTrait -> trait.getTrait().equals(userTrait)));
-        })
-        .sorted((h1, h2) -> {
-          // Sort by number of matching traits
-          long matches1 = countMatches(h1.getTraits(), dominantTraits);
-          long matches2 = countMatches(h2.getTraits(), dominantTraits);
-          return Long.compare(matches2, matches1);
-        })
-        .collect(Collectors.toList());
+    // The catalog ranked against the user's whole personality vector
+    double[] personality = {score(latestPersonality.getOpenness()), score(latestPersonality.getConscientiousness()),
+        score(latestPersonality.getExtraversion()), score(latestPersonality.getAgreeableness()),
+        score(latestPersonality.getNeuroticism())};
+    return habitCatalog.top(personality, offset, limit);
   }
 
-  private long countMatches(List<Big_Five> habitTraits, List<String> userTraits) {
-    return habitTraits.stream()
-        .filter(trait -> userTraits.contains(trait.getTrait()))
-        .count();
+  private static double score(Double trait) {
+    return trait == null ? 0 : trait;
   }
+
   public Habit createHabit(Habit habit) {
     // Validate habit before creation
     List<String> existingTitles = habitRepository.findAll().stream()
@@ -97,7 +99,10 @@ public class UserHabitService {
           validation.getSuggestion());
     }
     
-    return habitRepository.save(habit);
+    Habit saved = habitRepository.save(habit);
+    // New catalog version, so every cached ranking is recomputed
+    habitCatalog.add(saved);
+    return saved;
   }
 
   public List<Habit> getAllHabits()   {
@@ -106,7 +111,7 @@ public class UserHabitService {
   @Auditable
   public List<User_Habits> createUserHabits(String userId, List<String> habits) {
     // Validate that habits exist and user doesn't already have them
-    Users user = userRepository.findById(userId)
+    Users user = userRepository.findWithHabitsById(userId)
         .orElseThrow(() -> new RuntimeException("User not found"));
     
     List<String> userExistingHabitIds = user.getUser_habits().stream()
@@ -131,18 +136,21 @@ public class UserHabitService {
       userHabits.add(userHabit);
     }
 
-    return userHabitRepository.saveAll(userHabits);
+    List<User_Habits> saved = userHabitRepository.saveAll(userHabits);
+    userActivityService.markDirty(userId);
+    recommendationCache.invalidateAfterCommit(userId);
+    return saved;
   }
 
   public List<User_Habits> getUserHabits(String userId) {
-    return userRepository.findById(userId)
+    return userRepository.findWithHabitsById(userId)
         .orElseThrow(() -> new RuntimeException("User not found"))
         .getUser_habits();
   }
 
   @Auditable
   public String deleteHabit(String habitId, String userId) {
-    Users user = userRepository.findById(userId)
+    Users user = userRepository.findWithHabitsById(userId)
         .orElseThrow(() -> new RuntimeException("User not found"));
 
     User_Habits userHabit = user.getUser_habits().stream()
@@ -151,11 +159,13 @@ public class UserHabitService {
         .orElseThrow(() -> new RuntimeException("Habit not found"));
 
     userHabitRepository.delete(userHabit);
+    userActivityService.markDirty(userId);
+    recommendationCache.invalidateAfterCommit(userId);
 
     return "Habit deleted";
   }
 
-  @Auditable
+  @Auditable(action = ACTION_TYPES.U, target = TARGET_TYPES.INFLUENCE, targetIdArg = 0, impactArg = 1)
   public String updateHabitImpact(String user_habits_id, Integer impact, Double average_impact) {
     User_Habits userHabit = userHabitRepository.findById(user_habits_id)
         .orElseThrow(() -> new RuntimeException("User habit not found"));
@@ -164,6 +174,9 @@ public class UserHabitService {
     userHabit.setAverage_impact(average_impact);
 
     userHabitRepository.save(userHabit);
+    if (userHabit.getHabitUser() != null) {
+      userActivityService.markDirty(userHabit.getHabitUser().getUser_id());
+    }
     return "Impact updated";
   }
 }
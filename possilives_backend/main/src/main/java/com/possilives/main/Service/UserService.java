@@ -1,22 +1,40 @@
 package com.possilives.main.Service;
 
+import com.possilives.main.DTO.PersonalityUpdateDTO;
+import com.possilives.main.DTO.ProfileUpdateDTO;
+import com.possilives.main.DTO.UserPageDTO;
+import com.possilives.main.DTO.UserProfileDTO;
+import com.possilives.main.DTO.UserProfileDTO.Section;
+import com.possilives.main.DTO.UserSummaryDTO;
+import com.possilives.main.Model.Personality;
 import com.possilives.main.Model.Users;
+import com.possilives.main.Repository.PersonalityRepository;
 import com.possilives.main.Repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
     private final NotificationsService notificationsService;
+    private final PersonalityRepository personalityRepository;
+
+    @Value("${user.list.max-page-size:100}")
+    private int maxPageSize = 100;
 
     public Integer generateVerificationCode() {
         return (int) (Math.random() * 9000) + 1000;
@@ -66,6 +84,33 @@ public class UserService {
         return userRepository.findByKeycloakId(id);
     }
 
+    // The profile with the requested collections. With personalities they come with the user,
+    // each other collection is one more query; collections not requested are never loaded
+    @Transactional(readOnly = true)
+    public Optional<UserProfileDTO> getProfile(String keycloakId, Set<Section> sections) {
+        Optional<Users> user = sections.contains(Section.PERSONALITIES)
+                ? userRepository.findWithPersonalitiesByKeycloakId(keycloakId)
+                : userRepository.findByKeycloakId(keycloakId);
+        return user.map(profile -> {
+            if (sections.contains(Section.USER_HABITS)) {
+                Hibernate.initialize(profile.getUser_habits());
+            }
+            if (sections.contains(Section.GENERATIONS)) {
+                Hibernate.initialize(profile.getGenerations());
+            }
+            return UserProfileDTO.of(profile, sections);
+        });
+    }
+
+    // Keyset page of user summaries after afterId ("" for the first page), at most maxPageSize long
+    public UserPageDTO getUserPage(String afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<UserSummaryDTO> users = userRepository.findSummariesAfter(afterId == null ? "" : afterId,
+                PageRequest.of(0, pageSize));
+        String nextAfterId = users.size() < pageSize ? null : users.get(users.size() - 1).user_id();
+        return new UserPageDTO(users, nextAfterId);
+    }
+
     public List<Users> getAllUsers() {
         return userRepository.findAll();
     }
@@ -73,7 +118,7 @@ public class UserService {
     //Given JWT Authentication get UserId
     public Optional<Users> getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !auth.isAuthenticated()) return Optional.of(null);
+        if (auth == null || !auth.isAuthenticated()) return Optional.empty();
 
         // Assuming username is stored as principal
         String keycloakId = auth.getName(); // or extract from UserDetails
@@ -84,7 +129,7 @@ public class UserService {
 
     public boolean verifyUser(String userId, Integer verificationCode) {
         //Set notification as read too
-        Optional<Users> user = userRepository.findById(userId);
+        Optional<Users> user = userRepository.findWithNotificationsById(userId);
         if (user.isPresent() && verificationCode.equals(user.get().getVerification_code())) {
             Users verifiedUser = user.get();
             verifiedUser.setIs_verified(true);
@@ -108,6 +153,42 @@ public class UserService {
         return userRepository.save(user);
     }
 
+    // Profile fields only, so the response doesn't walk the user's collections
+    @Transactional
+    public UserProfileDTO updateProfile(String userId, ProfileUpdateDTO profileDTO) {
+        Users user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        user.setUsername(profileDTO.getUsername());
+        user.setAge(profileDTO.getAge());
+        user.setCurrent_career(profileDTO.getCurrent_career());
+        user.setFuture_career(profileDTO.getFuture_career());
+        user.setRelationship_status(profileDTO.getRelationship_status());
+        user.setSocial_circle(profileDTO.getSocial_circle());
+
+        return UserProfileDTO.of(userRepository.save(user), EnumSet.noneOf(Section.class));
+    }
+
+    // Saves the new scores through their repository and returns the profile with all personalities,
+    // loaded with the user in one query
+    @Transactional
+    public UserProfileDTO addPersonality(String userId, PersonalityUpdateDTO personalityDTO) {
+        Users user = userRepository.findWithPersonalitiesById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Personality personality = new Personality();
+        personality.setPersonalityUser(user);
+        personality.setOpenness(personalityDTO.getOpenness());
+        personality.setConscientiousness(personalityDTO.getConscientiousness());
+        personality.setExtraversion(personalityDTO.getExtraversion());
+        personality.setAgreeableness(personalityDTO.getAgreeableness());
+        personality.setNeuroticism(personalityDTO.getNeuroticism());
+        personality.setCreatedAt(LocalDate.now());
+
+        user.getPersonalities().add(personalityRepository.save(personality));
+        return UserProfileDTO.of(user, EnumSet.of(Section.PERSONALITIES));
+    }
+
     public void deleteUser(String id) {
         userRepository.deleteById(id);
     }
@@ -0,0 +1,187 @@
+package com.possilives.main;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Audit.AuditLogAspect;
+import com.possilives.main.Audit.AuditLogWriter;
+import com.possilives.main.Audit.Auditable;
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+import com.possilives.main.Repository.HabitAnalysisStateRepository;
+import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.CurrentUserService;
+import com.possilives.main.Service.UserActivityService;
+
+import static org.mockito.Mockito.*;
+
+// Per-call overhead of AuditLogAspect on an audited method: no aspect, the previous per-call
+// name parsing, and the per-Method metadata cache. Not a unit test; run it with
+//   mvn -o test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.possilives.main.AuditLogAspectBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuditLogAspectBenchmark {
+
+    public static class BenchHabitService {
+        @Auditable(action = ACTION_TYPES.U, target = TARGET_TYPES.INFLUENCE, targetIdArg = 0, impactArg = 1)
+        public String updateHabitImpact(String userHabitsId, Integer impact, Double averageImpact) {
+            return "Impact updated";
+        }
+    }
+
+    // Counts events instead of queueing them, so only the aspect itself is measured
+    static class CountingWriter extends AuditLogWriter {
+        final LongAdder submitted = new LongAdder();
+
+        CountingWriter() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void submit(AuditEvent event) {
+            submitted.increment();
+        }
+    }
+
+    // The advice as it was before the metadata cache: names parsed and signature built on every call
+    @Aspect
+    public static class LegacyAuditLogAspect {
+        private final AuditLogWriter auditLogWriter;
+        private final CurrentUserService currentUserService;
+        private final UserActivityService userActivityService;
+
+        LegacyAuditLogAspect(AuditLogWriter auditLogWriter, CurrentUserService currentUserService, UserActivityService userActivityService) {
+            this.auditLogWriter = auditLogWriter;
+            this.currentUserService = currentUserService;
+            this.userActivityService = userActivityService;
+        }
+
+        @Around("@annotation(com.possilives.main.Audit.Auditable)")
+        public Object logAudit(ProceedingJoinPoint joinPoint) throws Throwable {
+            String signature = joinPoint.getSignature().toShortString();
+            String methodName = joinPoint.getSignature().getName().toLowerCase();
+            ACTION_TYPES action = getActionType(methodName);
+            TARGET_TYPES target = getTargetType(joinPoint.getTarget().getClass().getSimpleName(), methodName);
+
+            String id = null;
+            Integer habitImpact = null;
+            if ("updatehabitimpact".equals(methodName)) {
+                Object[] args = joinPoint.getArgs();
+                if (args.length > 0 && args[0] instanceof String value) {
+                    id = value;
+                }
+                if (args.length > 1 && args[1] instanceof Integer value) {
+                    habitImpact = value;
+                }
+            }
+
+            Object result = joinPoint.proceed();
+
+            Optional<String> userId = currentUserService.getCurrentUserId();
+            if (userId.isPresent()) {
+                auditLogWriter.submit(new AuditLogWriter.AuditEvent(userId.get(), action, target, signature, id,
+                    habitImpact, LocalDateTime.now()));
+                if (action != null && action != ACTION_TYPES.R
+                        && (target == TARGET_TYPES.USERHABIT || target == TARGET_TYPES.INFLUENCE)) {
+                    userActivityService.markDirty(userId.get());
+                }
+            }
+            return result;
+        }
+
+        private ACTION_TYPES getActionType(String methodName) {
+            if (methodName.startsWith("create") || methodName.contains("send") || methodName.startsWith("save")) return ACTION_TYPES.C;
+            if (methodName.startsWith("get") || methodName.startsWith("find")) return ACTION_TYPES.R;
+            if (methodName.startsWith("update")) return ACTION_TYPES.U;
+            if (methodName.startsWith("delete") || methodName.startsWith("remove")) return ACTION_TYPES.D;
+            return null;
+        }
+
+        private TARGET_TYPES getTargetType(String className, String methodName) {
+            if ("updatehabitimpact".equals(methodName)) {
+                return TARGET_TYPES.INFLUENCE;
+            }
+            if (className.toLowerCase().contains("habit")) return TARGET_TYPES.USERHABIT;
+            if (className.toLowerCase().contains("generat")) return TARGET_TYPES.GENERATION;
+            if (className.toLowerCase().contains("influence")) return TARGET_TYPES.INFLUENCE;
+            if (className.toLowerCase().contains("notif")) return TARGET_TYPES.NOTIFICATION;
+            return null;
+        }
+    }
+
+    private BenchHabitService plain;
+    private BenchHabitService legacy;
+    private BenchHabitService cached;
+
+    @Setup
+    public void setUp() {
+        // Benchmark threads differ from the setup thread
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("kc-1", null, "ROLE_USER"));
+
+        UserRepository userRepository = mock(UserRepository.class, withSettings().stubOnly());
+        when(userRepository.findUserIdByKeycloakId("kc-1")).thenReturn(Optional.of("user1"));
+        CurrentUserService currentUserService = new CurrentUserService(userRepository);
+        ReflectionTestUtils.setField(currentUserService, "cacheTtlSeconds", 3600L);
+        UserActivityService userActivityService = new UserActivityService(
+            mock(HabitAnalysisStateRepository.class, withSettings().stubOnly()));
+        CountingWriter writer = new CountingWriter();
+
+        plain = new BenchHabitService();
+        legacy = proxy(new LegacyAuditLogAspect(writer, currentUserService, userActivityService));
+        cached = proxy(new AuditLogAspect(writer, currentUserService, userActivityService));
+    }
+
+    private static BenchHabitService proxy(Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new BenchHabitService());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @Benchmark
+    public String noAspect() {
+        return plain.updateHabitImpact("uh1", 7, 6.5);
+    }
+
+    @Benchmark
+    public String perCallParsing() {
+        return legacy.updateHabitImpact("uh1", 7, 6.5);
+    }
+
+    @Benchmark
+    public String metadataCache() {
+        return cached.updateHabitImpact("uh1", 7, 6.5);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(AuditLogAspectBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,175 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Audit.AuditLogAspect;
+import com.possilives.main.Audit.AuditLogWriter;
+import com.possilives.main.Audit.AuditPolicy;
+import com.possilives.main.Audit.Auditable;
+import com.possilives.main.Model.NotificationType;
+import com.possilives.main.Model.Users;
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+import com.possilives.main.Repository.NotificationsRepository;
+import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.CurrentUserService;
+import com.possilives.main.Service.NotificationsService;
+import com.possilives.main.Service.UserActivityService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogAspectTest {
+
+    private static final int CALLS = 20;
+
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private UserActivityService userActivityService;
+
+    private AuditLogAspect aspect;
+    private HabitService habitService;
+
+    // Class name makes the target USERHABIT, method names make the actions
+    public static class HabitService {
+        @Auditable(targetIdArg = 0)
+        public String getHabit(String habitId) {
+            return habitId;
+        }
+
+        @Auditable(targetIdArg = 0)
+        public String updateHabit(String habitId) {
+            return habitId;
+        }
+    }
+
+    // Real notification service without the mail server
+    public static class MailFreeNotificationsService extends NotificationsService {
+        public MailFreeNotificationsService(UserRepository userRepository) {
+            super(mock(NotificationsRepository.class), userRepository, mock(JavaMailSender.class), new SimpleMeterRegistry());
+        }
+
+        @Override
+        protected void sendEmail(String receiverEmail, String title, String description, String link) {
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(currentUserService.getCurrentUserId()).thenReturn(Optional.of("user1"));
+        aspect = new AuditLogAspect(auditLogWriter, currentUserService, userActivityService);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new HabitService());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        habitService = factory.getProxy();
+    }
+
+    @Test
+    void readPolicyOff_SkipsRecording() {
+        readPolicy(AuditPolicy.OFF);
+
+        assertEquals("habit1", habitService.getHabit("habit1"));
+
+        verifyNoInteractions(auditLogWriter, currentUserService);
+    }
+
+    @Test
+    void readPolicyCountOnly_OnlyCounts() {
+        readPolicy(AuditPolicy.COUNT_ONLY);
+
+        assertEquals("habit1", habitService.getHabit("habit1"));
+
+        ArgumentCaptor<AuditLogWriter.AuditEvent> counted = ArgumentCaptor.forClass(AuditLogWriter.AuditEvent.class);
+        verify(auditLogWriter).count(counted.capture());
+        verify(auditLogWriter, never()).submit(any());
+        assertEquals("user1", counted.getValue().userId());
+        assertEquals(ACTION_TYPES.R, counted.getValue().action());
+        assertEquals(TARGET_TYPES.USERHABIT, counted.getValue().target());
+        assertEquals("habit1", counted.getValue().targetId());
+    }
+
+    @Test
+    void readPolicySampled_CountsEveryCallAndWritesNoRowAtRateZero() {
+        readPolicy(AuditPolicy.SAMPLED);
+        ReflectionTestUtils.setField(aspect, "readSampleRate", 0.0);
+
+        for (int i = 0; i < CALLS; i++) {
+            habitService.getHabit("habit" + i);
+        }
+
+        verify(auditLogWriter, times(CALLS)).count(any());
+        verify(auditLogWriter, never()).submit(any());
+    }
+
+    @Test
+    void readPolicySampled_WritesSampledRowsWithoutCountingThemTwice() {
+        readPolicy(AuditPolicy.SAMPLED);
+        ReflectionTestUtils.setField(aspect, "readSampleRate", 1.0);
+
+        for (int i = 0; i < CALLS; i++) {
+            habitService.getHabit("habit" + i);
+        }
+
+        verify(auditLogWriter, times(CALLS)).count(any());
+        ArgumentCaptor<AuditLogWriter.AuditEvent> written = ArgumentCaptor.forClass(AuditLogWriter.AuditEvent.class);
+        verify(auditLogWriter, times(CALLS)).submit(written.capture());
+        List<AuditLogWriter.AuditEvent> rows = written.getAllValues();
+        assertTrue(rows.stream().noneMatch(AuditLogWriter.AuditEvent::countInRollup));
+        assertEquals("habit0", rows.get(0).targetId());
+    }
+
+    @Test
+    void writes_AreAlwaysWrittenWhateverTheReadPolicy() {
+        readPolicy(AuditPolicy.OFF);
+
+        habitService.updateHabit("habit1");
+
+        ArgumentCaptor<AuditLogWriter.AuditEvent> written = ArgumentCaptor.forClass(AuditLogWriter.AuditEvent.class);
+        verify(auditLogWriter).submit(written.capture());
+        verify(auditLogWriter, never()).count(any());
+        assertEquals(ACTION_TYPES.U, written.getValue().action());
+        assertTrue(written.getValue().countInRollup());
+        verify(userActivityService).markDirty("user1");
+    }
+
+    @Test
+    void notificationOverloads_AreEachRecordedOnce() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById("user2")).thenReturn(Optional.of(new Users()));
+        AspectJProxyFactory factory = new AspectJProxyFactory(new MailFreeNotificationsService(userRepository));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        NotificationsService notifications = factory.getProxy();
+
+        notifications.sendEmailAndSaveNotification("user2", null, "title", "body", null, NotificationType.RECOMMENDATION);
+        notifications.sendEmailAndSaveNotification("user2", null, "title", "body", null);
+
+        ArgumentCaptor<AuditLogWriter.AuditEvent> written = ArgumentCaptor.forClass(AuditLogWriter.AuditEvent.class);
+        verify(auditLogWriter, times(2)).submit(written.capture());
+        assertTrue(written.getAllValues().stream().allMatch(event -> event.target() == TARGET_TYPES.NOTIFICATION));
+    }
+
+    private void readPolicy(AuditPolicy policy) {
+        ReflectionTestUtils.setField(aspect, "readPolicy", policy);
+    }
+}
@@ -0,0 +1,79 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.possilives.main.Audit.AuditLogExporter;
+import com.possilives.main.Config.AsyncTimeoutConfig;
+import com.possilives.main.Controller.AuditLogController;
+import com.possilives.main.Service.AuditLogService;
+import com.possilives.main.Service.PlatformAnalyticsService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogControllerTest {
+
+    private static final long CONTAINER_TIMEOUT_MILLIS = 30_000;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private AuditLogExporter auditLogExporter;
+
+    @Mock
+    private PlatformAnalyticsService platformAnalyticsService;
+
+    private AuditLogController controller;
+    private MockHttpServletRequest request;
+    private WebAsyncManager asyncManager;
+
+    private final LocalDateTime start = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        controller = new AuditLogController(auditLogService, new ObjectMapper(), auditLogExporter, platformAnalyticsService);
+        ReflectionTestUtils.setField(controller, "exportTimeoutMillis", 0L);
+
+        // The async setup of a request as RequestMappingHandlerAdapter does it, with the
+        // container's default timeout
+        request = new MockHttpServletRequest("GET", "/api/audit/export");
+        request.setAsyncSupported(true);
+        StandardServletAsyncWebRequest asyncWebRequest = new StandardServletAsyncWebRequest(request, new MockHttpServletResponse());
+        asyncWebRequest.setTimeout(CONTAINER_TIMEOUT_MILLIS);
+        asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(asyncWebRequest);
+        asyncManager.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        asyncManager.registerCallableInterceptor("timeouts", new AsyncTimeoutConfig.TimeoutOverride());
+    }
+
+    @Test
+    void export_LiftsTheAsyncTimeoutForTheStream() throws Exception {
+        controller.export(null, start, start.plusMonths(1), null, null, AuditLogExporter.Format.CSV, true, request);
+
+        asyncManager.startCallableProcessing(() -> null);
+
+        assertEquals(0, request.getAsyncContext().getTimeout());
+    }
+
+    @Test
+    void otherAsyncRequestsKeepTheDefaultTimeout() throws Exception {
+        asyncManager.startCallableProcessing(() -> null);
+
+        assertEquals(CONTAINER_TIMEOUT_MILLIS, request.getAsyncContext().getTimeout());
+    }
+}
@@ -0,0 +1,83 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.possilives.main.Audit.AuditLogExporter;
+import com.possilives.main.Audit.AuditLogExporter.Format;
+import com.possilives.main.Repository.AuditLogRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogExporterTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private AuditLogExporter exporter;
+
+    private final LocalDateTime start = LocalDateTime.of(2025, 6, 1, 0, 0);
+    private final LocalDateTime end = start.plusMonths(1);
+    private final LocalDateTime createdAt = LocalDateTime.of(2025, 6, 2, 10, 30);
+
+    @BeforeEach
+    void setUp() {
+        exporter = new AuditLogExporter(auditLogRepository, objectMapper);
+    }
+
+    @Test
+    void export_WritesCsvWithHeaderAndEscapesValues() throws Exception {
+        when(auditLogRepository.streamForExport(null, start, end, start, "")).thenReturn(Stream.<Object[]>of(
+                new Object[] {"a1", "INFLUENCE", "UserHabitService.updateHabitImpact(..)", "uh1", "U",
+                    Timestamp.valueOf(createdAt), 7, "user1"},
+                new Object[] {"a2", "GENERATION", "sig, with \"quotes\"", null, "R",
+                    Timestamp.valueOf(createdAt), null, "user2"}));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exporter.export(null, start, end, null, null, Format.CSV, false, out);
+
+        assertEquals(2, rows);
+        assertEquals(List.of(
+                "auditlog_id,target,signature,target_id,action,created_at,habit_impact,audit_by_user_id",
+                "a1,INFLUENCE,UserHabitService.updateHabitImpact(..),uh1,U,2025-06-02T10:30,7,user1",
+                "a2,GENERATION,\"sig, with \"\"quotes\"\"\",,R,2025-06-02T10:30,,user2"),
+                out.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+
+    @Test
+    void export_ResumesAfterGivenKeyAsGzippedNdjson() throws Exception {
+        when(auditLogRepository.streamForExport("user1", start, end, createdAt, "a1")).thenReturn(Stream.<Object[]>of(
+                new Object[] {"a2", "INFLUENCE", "s", "uh1", "U", Timestamp.valueOf(createdAt), 5, "user1"}));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export("user1", start, end, createdAt, "a1", Format.NDJSON, true, out);
+
+        List<String> lines;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+        assertEquals(1, lines.size());
+        JsonNode row = objectMapper.readTree(lines.get(0));
+        assertEquals("a2", row.get("auditlog_id").asText());
+        assertEquals("2025-06-02T10:30", row.get("created_at").asText());
+        assertEquals(5, row.get("habit_impact").asInt());
+    }
+}
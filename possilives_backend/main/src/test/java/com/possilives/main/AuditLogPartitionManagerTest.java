@@ -0,0 +1,162 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.possilives.main.Audit.AuditLogPartitionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path archiveDir;
+
+    private AuditLogPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new AuditLogPartitionManager(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        ReflectionTestUtils.setField(manager, "monthsAhead", 2);
+        ReflectionTestUtils.setField(manager, "retentionMonths", 3);
+        ReflectionTestUtils.setField(manager, "archiveDir", archiveDir.toString());
+        ReflectionTestUtils.setField(manager, "archiveFetchSize", 100);
+        lenient().when(jdbcTemplate.queryForObject(eq("SELECT pg_try_advisory_xact_lock(?)"), eq(Boolean.class), any()))
+                .thenReturn(true);
+    }
+
+    @Test
+    void archiveExpired_ArchivesAndDropsOnlyPartitionsBeforeRetentionWindow() throws Exception {
+        String expired = partition(YearMonth.now().minusMonths(3));
+        String kept = partition(YearMonth.now().minusMonths(2));
+        String current = partition(YearMonth.now());
+        when(jdbcTemplate.queryForList(startsWith("SELECT c.relname FROM pg_inherits"), eq(String.class)))
+                .thenReturn(List.of("auditlog_default", expired, kept, current));
+        when(jdbcTemplate.queryForList(startsWith("SELECT c.relname FROM pg_class"), eq(String.class)))
+                .thenReturn(List.of(expired));
+
+        manager.archiveExpired();
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE auditlog DETACH PARTITION " + expired);
+        inOrder.verify(jdbcTemplate).queryForList(startsWith("SELECT c.relname FROM pg_class"), eq(String.class));
+        inOrder.verify(jdbcTemplate).execute("DROP TABLE " + expired);
+        verify(jdbcTemplate, never()).execute(contains(kept));
+        verify(jdbcTemplate, never()).execute(contains(current));
+        verify(jdbcTemplate, never()).execute(contains("auditlog_default"));
+
+        Path archive = archiveDir.resolve(expired + ".csv.gz");
+        assertTrue(Files.exists(archive));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+            assertEquals("auditlog_id,target,signature,target_id,action,created_at,habit_impact,audit_by_user_id",
+                    reader.readLine());
+        }
+    }
+
+    @Test
+    void archiveExpired_RetriesTablesLeftDetachedByAFailedArchive() {
+        String leftOver = partition(YearMonth.now().minusMonths(5));
+        when(jdbcTemplate.queryForList(startsWith("SELECT c.relname FROM pg_inherits"), eq(String.class)))
+                .thenReturn(List.of("auditlog_default", partition(YearMonth.now())));
+        when(jdbcTemplate.queryForList(startsWith("SELECT c.relname FROM pg_class"), eq(String.class)))
+                .thenReturn(List.of(leftOver));
+
+        manager.archiveExpired();
+
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE auditlog DETACH PARTITION"));
+        verify(jdbcTemplate).execute("DROP TABLE " + leftOver);
+        assertTrue(Files.exists(archiveDir.resolve(leftOver + ".csv.gz")));
+    }
+
+    @Test
+    void ensurePartitions_CreatesCurrentAndUpcomingMonths() {
+        manager.ensurePartitions();
+
+        for (int i = 0; i <= 2; i++) {
+            YearMonth month = YearMonth.now().plusMonths(i);
+            verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS " + partition(month) + " PARTITION OF auditlog "
+                    + "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+    }
+
+    @Test
+    void ensurePartitions_MovesRowsCaughtByTheDefaultPartitionIntoTheNewMonth() {
+        YearMonth month = YearMonth.now().plusMonths(2);
+        String name = partition(month);
+        lenient().when(jdbcTemplate.queryForObject(startsWith("SELECT EXISTS (SELECT 1 FROM auditlog_default"), eq(Boolean.class),
+                any(), any())).thenReturn(false);
+        lenient().when(jdbcTemplate.queryForObject(startsWith("SELECT EXISTS (SELECT 1 FROM auditlog_default"), eq(Boolean.class),
+                eq(month.atDay(1)), eq(month.plusMonths(1).atDay(1)))).thenReturn(true);
+
+        manager.ensurePartitions();
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("LOCK TABLE auditlog_default IN ACCESS EXCLUSIVE MODE");
+        inOrder.verify(jdbcTemplate).execute("CREATE TABLE " + name + " (LIKE auditlog INCLUDING DEFAULTS)");
+        inOrder.verify(jdbcTemplate).update(startsWith("WITH moved AS (DELETE FROM auditlog_default"),
+                eq(month.atDay(1)), eq(month.plusMonths(1).atDay(1)));
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE auditlog ATTACH PARTITION " + name + " FOR VALUES FROM ('"
+                + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE TABLE IF NOT EXISTS " + name));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS " + partition(YearMonth.now()) + " PARTITION OF"));
+    }
+
+    @Test
+    void ensurePartitions_LeavesExistingPartitionsAlone() {
+        when(jdbcTemplate.queryForObject(eq("SELECT to_regclass(?) IS NOT NULL"), eq(Boolean.class), any()))
+                .thenReturn(true);
+
+        manager.ensurePartitions();
+
+        verify(jdbcTemplate, never()).queryForObject(startsWith("SELECT EXISTS (SELECT 1 FROM auditlog_default"),
+                eq(Boolean.class), any(), any());
+        verify(jdbcTemplate, never()).execute(startsWith("LOCK TABLE"));
+    }
+
+    @Test
+    void maintain_ArchivesEvenWhenCreatingPartitionsFails() {
+        String expired = partition(YearMonth.now().minusMonths(3));
+        when(jdbcTemplate.queryForObject(eq("SELECT to_regclass(?) IS NOT NULL"), eq(Boolean.class), any()))
+                .thenThrow(new RuntimeException("updated partition constraint for default partition would be violated"));
+        when(jdbcTemplate.queryForList(startsWith("SELECT c.relname FROM pg_inherits"), eq(String.class)))
+                .thenReturn(List.of(expired));
+        when(jdbcTemplate.queryForList(startsWith("SELECT c.relname FROM pg_class"), eq(String.class)))
+                .thenReturn(List.of(expired));
+
+        manager.maintain();
+
+        verify(jdbcTemplate).execute("ALTER TABLE auditlog DETACH PARTITION " + expired);
+        verify(jdbcTemplate).execute("DROP TABLE " + expired);
+    }
+
+    private String partition(YearMonth month) {
+        return "auditlog_p" + month.format(DateTimeFormatter.ofPattern("yyyy_MM"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Audit.AuditLogPartitionManager;
+import com.possilives.main.Audit.AuditLogSchemaMigration;
+import com.possilives.main.Audit.AuditLogWriter;
+import com.possilives.main.Service.AuditRollupService;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogSchemaMigrationTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AuditRollupService auditRollupService;
+
+    @Mock
+    private AuditLogPartitionManager auditLogPartitionManager;
+
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @InjectMocks
+    private AuditLogSchemaMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(migration, "enabled", true);
+        ReflectionTestUtils.setField(migration, "backfillBatchSize", 100);
+    }
+
+    @Test
+    void run_BackfillsFromSignaturesOnceAndRecordsIt() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM audit_migration"), eq(Integer.class), any()))
+                .thenReturn(0);
+        when(jdbcTemplate.update(startsWith("UPDATE auditlog"), eq(100))).thenReturn(100, 7);
+
+        migration.run(null);
+
+        verify(jdbcTemplate, times(2)).update(startsWith("UPDATE auditlog SET target_id = substring(signature"), eq(100));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO audit_migration"), eq("auditlog-target-id-backfill"));
+        verify(auditRollupService).initializeIfEmpty();
+    }
+
+    @Test
+    void run_ReleasesTheWriterOnlyAfterTheConversion() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM audit_migration"), eq(Integer.class), any()))
+                .thenReturn(1);
+
+        migration.run(null);
+
+        InOrder inOrder = inOrder(auditLogPartitionManager, auditLogWriter);
+        inOrder.verify(auditLogPartitionManager).ensurePartitioned();
+        inOrder.verify(auditLogWriter).tableReady();
+    }
+
+    @Test
+    void run_ReleasesTheWriterWhenTheConversionFails() {
+        doThrow(new RuntimeException("lock timeout")).when(auditLogPartitionManager).ensurePartitioned();
+
+        migration.run(null);
+
+        verify(auditLogWriter).tableReady();
+        verify(auditRollupService).initializeIfEmpty();
+    }
+
+    @Test
+    void run_ReleasesTheWriterWhenDisabled() {
+        ReflectionTestUtils.setField(migration, "enabled", false);
+
+        migration.run(null);
+
+        verify(auditLogWriter).tableReady();
+        verifyNoInteractions(jdbcTemplate, auditLogPartitionManager);
+    }
+
+    @Test
+    void run_SkipsBackfillOnceRecorded() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM audit_migration"), eq(Integer.class), any()))
+                .thenReturn(1);
+
+        migration.run(null);
+
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE auditlog"), anyInt());
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO audit_migration"), anyString());
+        verify(auditRollupService).initializeIfEmpty();
+    }
+}
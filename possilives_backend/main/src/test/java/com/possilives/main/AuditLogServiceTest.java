@@ -0,0 +1,73 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.possilives.main.DTO.StatisticsStreamDTO;
+import com.possilives.main.Repository.AuditDailyRollupRepository;
+import com.possilives.main.Service.AuditLogService;
+import com.possilives.main.Service.CurrentUserService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogServiceTest {
+
+    @Mock
+    private AuditDailyRollupRepository auditDailyRollupRepository;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @InjectMocks
+    private AuditLogService auditLogService;
+
+    private final LocalDateTime day1 = LocalDateTime.of(2025, 6, 1, 0, 0);
+    private final LocalDateTime day2 = day1.plusDays(1);
+
+    @Test
+    void streamAuditAggregation_EmitsOneBucketPerDayInOrderAndReturnsAverage() {
+        when(currentUserService.resolveUserId("kc-1")).thenReturn(Optional.of("user1"));
+        when(auditDailyRollupRepository.streamDailyRollups("user1", day1, day2.plusDays(1))).thenReturn(Stream.of(
+                new Object[] {Timestamp.valueOf(day1), "C", "GENERATION", 2L, null},
+                new Object[] {Timestamp.valueOf(day1), "U", "INFLUENCE", 3L, 4.0},
+                new Object[] {Timestamp.valueOf(day2), "C", "USERHABIT", 1L, null},
+                new Object[] {Timestamp.valueOf(day2), "U", "USERHABIT", 1L, 8.0}));
+
+        List<StatisticsStreamDTO> days = new ArrayList<>();
+        double average = auditLogService.streamAuditAggregation("kc-1", day1, day2.plusDays(1), days::add);
+
+        assertEquals(2, days.size());
+        assertEquals(day1, days.get(0).getDate());
+        assertEquals(2, days.get(0).getFuturesGenerated());
+        assertEquals(3, days.get(0).getHabitsInfluenceChanged());
+        assertEquals(day2, days.get(1).getDate());
+        assertEquals(1, days.get(1).getHabitsCreated());
+        assertEquals(1, days.get(1).getHabitsInfluenceChanged());
+        assertEquals(5.0, average, 1e-9);
+    }
+
+    @Test
+    void getAuditAggregation_KeepsDateOrder() {
+        when(currentUserService.resolveUserId("kc-1")).thenReturn(Optional.of("user1"));
+        when(auditDailyRollupRepository.streamDailyRollups("user1", day1, day2.plusDays(1))).thenReturn(Stream.of(
+                new Object[] {Timestamp.valueOf(day1), "C", "GENERATION", 1L, null},
+                new Object[] {Timestamp.valueOf(day2), "C", "GENERATION", 1L, null}));
+
+        List<StatisticsStreamDTO> stats = auditLogService
+                .getAuditAggregation("kc-1", null, null, day1, day2.plusDays(1)).get(0).getStats();
+
+        assertEquals(List.of(day1, day2), stats.stream().map(StatisticsStreamDTO::getDate).toList());
+    }
+}
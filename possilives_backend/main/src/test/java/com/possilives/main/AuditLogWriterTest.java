@@ -0,0 +1,228 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.possilives.main.Audit.AuditLogWriter;
+import com.possilives.main.Audit.AuditLogWriter.AuditEvent;
+import com.possilives.main.Audit.AuditLogWriter.OverflowPolicy;
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final List<Map.Entry<?, long[]>> rollupRows = new CopyOnWriteArrayList<>();
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), anySetter()))
+                .thenAnswer(invocation -> {
+                    recordBatch(invocation.getArgument(0), invocation.getArgument(1));
+                    return new int[0][];
+                });
+
+        writer = new AuditLogWriter(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(writer, "batchSize", 5);
+        ReflectionTestUtils.setField(writer, "flushMs", 100L);
+        ReflectionTestUtils.setField(writer, "overflowPolicy", OverflowPolicy.BLOCK);
+        ReflectionTestUtils.setField(writer, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(writer, "shutdownWaitSeconds", 5L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void submit_WritesFullBatchesAndFlushesRemainderAfterInterval() throws Exception {
+        writer.start();
+        writer.tableReady();
+
+        for (int i = 0; i < 12; i++) {
+            writer.submit(event(i));
+        }
+
+        await(() -> meterRegistry.counter("audit.writer.events", "result", "written").count() == 12.0);
+        assertEquals(12, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 5));
+        assertTrue(batchSizes.size() < 12, "events should be grouped into batches");
+    }
+
+    @Test
+    void submit_HoldsRowsBackUntilTheTableIsReady() throws Exception {
+        writer.start();
+
+        for (int i = 0; i < 3; i++) {
+            writer.submit(event(i));
+        }
+        Thread.sleep(300);
+        assertTrue(batchSizes.isEmpty(), "rows were written before auditlog was ready");
+
+        writer.tableReady();
+        await(() -> meterRegistry.counter("audit.writer.events", "result", "written").count() == 3.0);
+    }
+
+    @Test
+    void submit_CallerRunsDropsInsteadOfWritingBeforeTheTableIsReady() {
+        ReflectionTestUtils.setField(writer, "queueCapacity", 1);
+        ReflectionTestUtils.setField(writer, "overflowPolicy", OverflowPolicy.CALLER_RUNS);
+        writer.start();
+
+        writer.submit(event(0));
+        writer.submit(event(1));
+
+        assertTrue(batchSizes.isEmpty());
+        assertEquals(1.0, meterRegistry.counter("audit.writer.events", "result", "dropped").count());
+    }
+
+    @Test
+    void submit_DropsWhenQueueIsFullUnderDropPolicy() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), anySetter()))
+                .thenAnswer(invocation -> {
+                    writing.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    recordBatch(invocation.getArgument(0), invocation.getArgument(1));
+                    return new int[0][];
+                });
+        ReflectionTestUtils.setField(writer, "queueCapacity", 2);
+        ReflectionTestUtils.setField(writer, "batchSize", 1);
+        ReflectionTestUtils.setField(writer, "overflowPolicy", OverflowPolicy.DROP);
+        writer.start();
+        writer.tableReady();
+
+        // The first event occupies the writer, the next two fill the queue
+        writer.submit(event(0));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.submit(event(1));
+        writer.submit(event(2));
+        writer.submit(event(3));
+        release.countDown();
+
+        assertEquals(1.0, meterRegistry.counter("audit.writer.events", "result", "dropped").count());
+        writer.shutdown();
+        assertEquals(3, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void shutdown_FlushesQueuedEventsAndWritesLateOnesDirectly() {
+        ReflectionTestUtils.setField(writer, "flushMs", 10_000L);
+        ReflectionTestUtils.setField(writer, "batchSize", 50);
+        writer.start();
+        writer.tableReady();
+
+        for (int i = 0; i < 3; i++) {
+            writer.submit(event(i));
+        }
+        writer.shutdown();
+        writer.submit(event(3));
+
+        assertEquals(4, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(4.0, meterRegistry.counter("audit.writer.events", "result", "written").count());
+    }
+
+    @Test
+    void writeBatch_CollapsesRollupIncrementsPerUserDayActionAndTarget() {
+        ReflectionTestUtils.setField(writer, "flushMs", 10_000L);
+        ReflectionTestUtils.setField(writer, "batchSize", 50);
+        writer.start();
+        writer.tableReady();
+
+        LocalDateTime now = LocalDateTime.now();
+        writer.submit(new AuditEvent("user1", ACTION_TYPES.U, TARGET_TYPES.INFLUENCE, "s", "uh1", 4, now));
+        writer.submit(new AuditEvent("user1", ACTION_TYPES.U, TARGET_TYPES.INFLUENCE, "s", "uh2", 6, now));
+        writer.submit(new AuditEvent("user1", ACTION_TYPES.C, TARGET_TYPES.USERHABIT, "s", "uh3", null, now));
+        writer.submit(new AuditEvent("user2", ACTION_TYPES.U, TARGET_TYPES.INFLUENCE, "s", "uh4", 2, now));
+        writer.shutdown();
+
+        assertEquals(4, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(3, rollupRows.size());
+        Map.Entry<?, long[]> influence = rollupRows.stream()
+                .filter(row -> row.getKey().toString().contains("user1") && row.getKey().toString().contains("INFLUENCE"))
+                .findFirst().orElseThrow();
+        assertArrayEquals(new long[] {2, 10, 2}, influence.getValue());
+    }
+
+    @Test
+    void count_FlushesCountsIntoRollupsWithoutAuditRows() {
+        ReflectionTestUtils.setField(writer, "flushMs", 10_000L);
+        ReflectionTestUtils.setField(writer, "batchSize", 50);
+        writer.start();
+        writer.tableReady();
+
+        LocalDateTime now = LocalDateTime.now();
+        AuditEvent read = new AuditEvent("user1", ACTION_TYPES.R, TARGET_TYPES.GENERATION, "s", null, null, now, false);
+        writer.count(read);
+        writer.count(read);
+        writer.count(read);
+        // A sampled row of a counted read must not be added to the rollup a second time
+        writer.submit(read);
+        writer.flushCounts();
+        writer.shutdown();
+
+        assertEquals(1, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(1, rollupRows.size());
+        assertArrayEquals(new long[] {3, 0, 0}, rollupRows.get(0).getValue());
+        assertEquals(3.0, meterRegistry.counter("audit.writer.events", "result", "counted").count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordBatch(String sql, Collection<?> rows) {
+        if (sql.startsWith("INSERT INTO auditlog ")) {
+            batchSizes.add(rows.size());
+        } else if (sql.startsWith("INSERT INTO audit_daily_rollup ")) {
+            rows.forEach(row -> rollupRows.add((Map.Entry<?, long[]>) row));
+        }
+    }
+
+    private AuditEvent event(int i) {
+        return new AuditEvent("user" + i, ACTION_TYPES.U, TARGET_TYPES.INFLUENCE,
+                "UserHabitService.updateHabitImpact(..)", "uh" + i, i, LocalDateTime.now());
+    }
+
+    private void await(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    // The writer batches both audit events and rollup rows, so match the setter whatever its row type
+    private static ParameterizedPreparedStatementSetter<Object> anySetter() {
+        return any();
+    }
+}
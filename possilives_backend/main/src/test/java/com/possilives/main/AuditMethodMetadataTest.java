@@ -0,0 +1,49 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.Test;
+
+import com.possilives.main.Audit.AuditMethodMetadata;
+import com.possilives.main.Model.enums.ACTION_TYPES;
+import com.possilives.main.Model.enums.TARGET_TYPES;
+import com.possilives.main.Service.NotificationsService;
+import com.possilives.main.Service.UserHabitService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+class AuditMethodMetadataTest {
+
+    @Test
+    void resolve_UsesAuditableAttributes() throws Exception {
+        Method method = UserHabitService.class.getMethod("updateHabitImpact", String.class, Integer.class, Double.class);
+
+        AuditMethodMetadata metadata = AuditMethodMetadata.resolve(method, UserHabitService.class, "UserHabitService.updateHabitImpact(..)");
+
+        assertEquals(ACTION_TYPES.U, metadata.action());
+        assertEquals(TARGET_TYPES.INFLUENCE, metadata.target());
+        assertEquals("uh1", metadata.targetId(new Object[] {"uh1", 7, 6.5}));
+        assertEquals(7, metadata.impact(new Object[] {"uh1", 7, 6.5}));
+        assertFalse(metadata.idsFromResult());
+        assertTrue(metadata.marksActivity());
+    }
+
+    @Test
+    void resolve_FallsBackToNameHeuristics() throws Exception {
+        Method create = UserHabitService.class.getMethod("createUserHabits", String.class, List.class);
+        Method send = NotificationsService.class.getMethod("sendEmailAndSaveNotification",
+                String.class, String.class, String.class, String.class, String.class);
+
+        AuditMethodMetadata habits = AuditMethodMetadata.resolve(create, UserHabitService.class, "s");
+        AuditMethodMetadata notification = AuditMethodMetadata.resolve(send, NotificationsService.class, "s");
+
+        assertEquals(ACTION_TYPES.C, habits.action());
+        assertEquals(TARGET_TYPES.USERHABIT, habits.target());
+        assertTrue(habits.idsFromResult());
+        assertFalse(habits.readsArgs());
+        assertEquals(ACTION_TYPES.C, notification.action());
+        assertEquals(TARGET_TYPES.NOTIFICATION, notification.target());
+        assertFalse(notification.marksActivity());
+    }
+}
@@ -0,0 +1,83 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Repository.AuditDailyRollupRepository;
+import com.possilives.main.Service.AuditRollupService;
+import com.possilives.main.Service.PlatformAnalyticsService;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDate;
+
+@ExtendWith(MockitoExtension.class)
+class AuditRollupServiceTest {
+
+    @Mock
+    private AuditDailyRollupRepository auditDailyRollupRepository;
+
+    @Mock
+    private PlatformAnalyticsService platformAnalyticsService;
+
+    @InjectMocks
+    private AuditRollupService auditRollupService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(auditRollupService, "rebuildDays", 2);
+    }
+
+    @Test
+    void rebuildRecent_KeepsCountedReadRollups() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+
+        auditRollupService.rebuildRecent();
+
+        // Reads are mostly counted without an auditlog row, so deleting them would lose the counts
+        verify(auditDailyRollupRepository).deleteFrom(yesterday, false);
+        verify(auditDailyRollupRepository).rebuildFrom(yesterday, false);
+        verify(auditDailyRollupRepository, never()).deleteFrom(any(), eq(true));
+        verify(platformAnalyticsService).evictFrom(yesterday);
+    }
+
+    @Test
+    void rebuildFrom_LocksOutTheWriterBeforeDeleting() {
+        LocalDate from = LocalDate.of(2026, 1, 1);
+
+        auditRollupService.rebuildFrom(from, false);
+
+        // Writer upserts add to the rows, so they must not land between the delete and the insert
+        InOrder inOrder = inOrder(auditDailyRollupRepository);
+        inOrder.verify(auditDailyRollupRepository).lockForRebuild();
+        inOrder.verify(auditDailyRollupRepository).deleteFrom(from, false);
+        inOrder.verify(auditDailyRollupRepository).rebuildFrom(from, false);
+    }
+
+    @Test
+    void initializeIfEmpty_BuildsReadsToo() {
+        when(auditDailyRollupRepository.count()).thenReturn(0L);
+
+        auditRollupService.initializeIfEmpty();
+
+        verify(auditDailyRollupRepository).deleteFrom(LocalDate.EPOCH, true);
+        verify(auditDailyRollupRepository).rebuildFrom(LocalDate.EPOCH, true);
+    }
+
+    @Test
+    void initializeIfEmpty_LeavesExistingRollupsAlone() {
+        when(auditDailyRollupRepository.count()).thenReturn(5L);
+
+        auditRollupService.initializeIfEmpty();
+
+        verify(auditDailyRollupRepository, never()).deleteFrom(any(), anyBoolean());
+        verify(auditDailyRollupRepository, never()).rebuildFrom(any(), anyBoolean());
+    }
+}
@@ -0,0 +1,75 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.CurrentUserService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+class CurrentUserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private CurrentUserService currentUserService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(currentUserService, "cacheTtlSeconds", 300L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getCurrentUserId_ResolvesOncePerKeycloakIdWithoutLoadingUser() {
+        when(userRepository.findUserIdByKeycloakId("kc-1")).thenReturn(Optional.of("user1"));
+        TestingAuthenticationToken auth = new TestingAuthenticationToken("kc-1", null, "ROLE_USER");
+        SecurityContextHolder.getContext().setAuthentication(auth);
+
+        assertEquals(Optional.of("user1"), currentUserService.getCurrentUserId());
+        assertEquals(Optional.of("user1"), currentUserService.getCurrentUserId());
+        assertEquals(Optional.of("user1"), currentUserService.resolveUserId("kc-1"));
+
+        verify(userRepository, times(1)).findUserIdByKeycloakId("kc-1");
+        verify(userRepository, never()).findByKeycloakId(any());
+    }
+
+    @Test
+    void resolveUserId_DoesNotCacheUnknownUsers() {
+        when(userRepository.findUserIdByKeycloakId("kc-new"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of("user2"));
+
+        assertTrue(currentUserService.resolveUserId("kc-new").isEmpty());
+        assertEquals(Optional.of("user2"), currentUserService.resolveUserId("kc-new"));
+    }
+
+    @Test
+    void resolveUserId_ReloadsAfterTtlExpires() {
+        ReflectionTestUtils.setField(currentUserService, "cacheTtlSeconds", 0L);
+        when(userRepository.findUserIdByKeycloakId("kc-1")).thenReturn(Optional.of("user1"));
+
+        currentUserService.resolveUserId("kc-1");
+        currentUserService.resolveUserId("kc-1");
+
+        verify(userRepository, times(2)).findUserIdByKeycloakId("kc-1");
+    }
+}
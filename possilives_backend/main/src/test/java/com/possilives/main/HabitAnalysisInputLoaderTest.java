@@ -0,0 +1,82 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.possilives.main.DTO.HabitAnalysisInput;
+import com.possilives.main.Repository.AuditLogRepository;
+import com.possilives.main.Repository.PersonalityRepository;
+import com.possilives.main.Repository.UserHabitRepository;
+import com.possilives.main.Service.HabitAnalysisInputLoader;
+import com.possilives.main.Service.HabitAnalysisMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+class HabitAnalysisInputLoaderTest {
+
+    @Mock
+    private PersonalityRepository personalityRepository;
+
+    @Mock
+    private UserHabitRepository userHabitRepository;
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    private HabitAnalysisInputLoader habitAnalysisInputLoader;
+
+    @BeforeEach
+    void setUp() {
+        habitAnalysisInputLoader = new HabitAnalysisInputLoader(personalityRepository, userHabitRepository,
+            auditLogRepository, new HabitAnalysisMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void load_GroupsChunkRowsByUser() {
+        List<String> userIds = List.of("user1", "user2");
+        LocalDateTime since = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime changedAt = LocalDateTime.of(2026, 1, 3, 9, 30);
+        when(personalityRepository.findLatestScoresForUsers(userIds))
+            .thenReturn(List.<Object[]>of(new Object[] {"user1", 70.0, 60.0, 50.0, 40.0, 30.0}));
+        when(userHabitRepository.findHabitLinesForUsers(userIds)).thenReturn(List.of(
+            new Object[] {"user1", "Morning run", 8, 7.5},
+            new Object[] {"user1", "Reading", 6, null}));
+        when(auditLogRepository.getHabitChangesForUsers(userIds, since))
+            .thenReturn(List.<Object[]>of(new Object[] {"user1", Timestamp.valueOf(changedAt), "U", "Reading", 6}));
+
+        List<HabitAnalysisInput> inputs = habitAnalysisInputLoader.load(userIds, since);
+
+        assertEquals(2, inputs.size());
+        HabitAnalysisInput first = inputs.get(0);
+        assertEquals("user1", first.userId());
+        assertEquals(70.0, first.personality().openness());
+        assertEquals(List.of(
+            new HabitAnalysisInput.HabitLine("Morning run", 8, 7.5),
+            new HabitAnalysisInput.HabitLine("Reading", 6, null)), first.habits());
+        assertEquals(List.of(new HabitAnalysisInput.HabitChange(changedAt, "U", "Reading", 6)), first.changes());
+
+        HabitAnalysisInput second = inputs.get(1);
+        assertEquals("user2", second.userId());
+        assertNull(second.personality());
+        assertTrue(second.habits().isEmpty());
+        assertTrue(second.changes().isEmpty());
+    }
+
+    @Test
+    void load_EmptyChunk_RunsNoQueries() {
+        assertTrue(habitAnalysisInputLoader.load(List.of(), LocalDateTime.now()).isEmpty());
+        verify(personalityRepository, never()).findLatestScoresForUsers(any());
+    }
+}
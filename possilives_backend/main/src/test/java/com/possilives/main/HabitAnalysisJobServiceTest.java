@@ -0,0 +1,110 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.possilives.main.Config.HabitAnalysisConfig;
+import com.possilives.main.Config.PrioritizedTask;
+import com.possilives.main.DTO.HabitAnalysisJobDTO;
+import com.possilives.main.Service.HabitAnalysisJobService;
+import com.possilives.main.Service.HabitAnalysisService;
+import com.possilives.main.Service.HabitAnalysisService.AnalysisOutcome;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+@ExtendWith(MockitoExtension.class)
+class HabitAnalysisJobServiceTest {
+
+    @Mock
+    private HabitAnalysisService habitAnalysisService;
+
+    private ThreadPoolExecutor executor;
+    private HabitAnalysisJobService habitAnalysisJobService;
+
+    @BeforeEach
+    void setUp() {
+        // One batch thread and no interactive reserve, so queued tasks compete for a single thread
+        executor = new HabitAnalysisConfig().habitAnalysisExecutor(1, 0);
+        habitAnalysisJobService = new HabitAnalysisJobService(habitAnalysisService, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void submit_RunsJobInBackground() throws Exception {
+        when(habitAnalysisService.triggerHabitAnalysisForUser("user1")).thenReturn(AnalysisOutcome.NOTIFIED);
+
+        HabitAnalysisJobDTO job = habitAnalysisJobService.submit("user1");
+        await(() -> job.getFinishedAt() != null);
+
+        assertEquals(HabitAnalysisJobDTO.Status.SUCCEEDED, habitAnalysisJobService.getJob(job.getJobId()).get().getStatus());
+        assertEquals("NOTIFIED", job.getOutcome());
+        assertNotNull(job.getFinishedAt());
+    }
+
+    @Test
+    void submit_SameUserWhileActive_ReturnsExistingJob() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(habitAnalysisService.triggerHabitAnalysisForUser("user1")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return AnalysisOutcome.NOTIFIED;
+        });
+
+        HabitAnalysisJobDTO first = habitAnalysisJobService.submit("user1");
+        HabitAnalysisJobDTO second = habitAnalysisJobService.submit("user1");
+        release.countDown();
+        await(() -> first.getFinishedAt() != null);
+
+        assertSame(first, second);
+        verify(habitAnalysisService, times(1)).triggerHabitAnalysisForUser("user1");
+
+        // Once finished, a new trigger starts a new job
+        assertNotEquals(first.getJobId(), habitAnalysisJobService.submit("user1").getJobId());
+    }
+
+    @Test
+    void submit_OvertakesQueuedBatchWork() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        executor.execute(new PrioritizedTask(PrioritizedTask.Priority.BATCH, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        executor.execute(new PrioritizedTask(PrioritizedTask.Priority.BATCH, () -> order.add("batch")));
+        when(habitAnalysisService.triggerHabitAnalysisForUser("user1")).thenAnswer(invocation -> {
+            order.add("interactive");
+            return AnalysisOutcome.NOTIFIED;
+        });
+
+        habitAnalysisJobService.submit("user1");
+        release.countDown();
+        await(() -> order.size() == 2);
+
+        assertEquals(List.of("interactive", "batch"), order);
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Model.HabitAnalysisShard;
+import com.possilives.main.Repository.HabitAnalysisShardRepository;
+import com.possilives.main.Service.HabitAnalysisLeaseService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+class HabitAnalysisLeaseServiceTest {
+
+    @Mock
+    private HabitAnalysisShardRepository habitAnalysisShardRepository;
+
+    @InjectMocks
+    private HabitAnalysisLeaseService habitAnalysisLeaseService;
+
+    private final LocalDateTime slot = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(habitAnalysisLeaseService, "shardCount", 4);
+        ReflectionTestUtils.setField(habitAnalysisLeaseService, "leaseMinutes", 10L);
+        ReflectionTestUtils.setField(habitAnalysisLeaseService, "shardReclaimHours", 6L);
+        ReflectionTestUtils.setField(habitAnalysisLeaseService, "fullRefreshHours", 168L);
+        ReflectionTestUtils.setField(habitAnalysisLeaseService, "configuredNodeId", "node-a");
+    }
+
+    @Test
+    void openSlot_CreatesContiguousShards() {
+        when(habitAnalysisShardRepository.findLastFullRefreshSlot()).thenReturn(null);
+
+        habitAnalysisLeaseService.openSlot(slot);
+
+        ArgumentCaptor<String> lower = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> upper = ArgumentCaptor.forClass(String.class);
+        verify(habitAnalysisShardRepository, times(4)).createShard(anyString(), eq(slot), anyInt(),
+            lower.capture(), upper.capture(), eq(true), any());
+        assertEquals(List.of("", "4000", "8000", "c000"), lower.getAllValues());
+        assertEquals(Arrays.asList("4000", "8000", "c000", null), upper.getAllValues());
+    }
+
+    @Test
+    void openSlot_CoversIdsThatAreNotLowercaseHex() {
+        when(habitAnalysisShardRepository.findLastFullRefreshSlot()).thenReturn(null);
+
+        habitAnalysisLeaseService.openSlot(slot);
+
+        ArgumentCaptor<String> lower = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> upper = ArgumentCaptor.forClass(String.class);
+        verify(habitAnalysisShardRepository, times(4)).createShard(anyString(), eq(slot), anyInt(),
+            lower.capture(), upper.capture(), eq(true), any());
+        // Imported or hand-made ids sort outside the hex prefixes; each must still fall in exactly one shard
+        for (String userId : List.of("0", "00000000-0000-0000-0000-000000000000", "ffffffff-ffff-ffff-ffff-ffffffffffff",
+                "FFFF0000-0000-0000-0000-000000000000", "g", "user1", "~legacy")) {
+            int shards = 0;
+            for (int i = 0; i < 4; i++) {
+                String upperBound = upper.getAllValues().get(i);
+                if (userId.compareTo(lower.getAllValues().get(i)) > 0 && (upperBound == null || userId.compareTo(upperBound) < 0)) {
+                    shards++;
+                }
+            }
+            assertEquals(1, shards, userId);
+        }
+    }
+
+    @Test
+    void openSlot_IncrementalWithinFullRefreshInterval() {
+        when(habitAnalysisShardRepository.findLastFullRefreshSlot()).thenReturn(slot.minusHours(12));
+
+        habitAnalysisLeaseService.openSlot(slot);
+
+        verify(habitAnalysisShardRepository, times(4)).createShard(anyString(), eq(slot), anyInt(),
+            anyString(), any(), eq(false), any());
+        verify(habitAnalysisShardRepository, never()).createShard(anyString(), any(), anyInt(),
+            anyString(), any(), eq(true), any());
+    }
+
+    @Test
+    void claimNext_SkipsShardsClaimedByAnotherNode() {
+        HabitAnalysisShard taken = new HabitAnalysisShard();
+        taken.setShard_id("slot#0");
+        HabitAnalysisShard free = new HabitAnalysisShard();
+        free.setShard_id("slot#1");
+        when(habitAnalysisShardRepository.findClaimable(any(), any())).thenReturn(List.of(taken, free));
+        when(habitAnalysisShardRepository.claim(eq("slot#0"), eq("node-a"), any(), any())).thenReturn(0);
+        when(habitAnalysisShardRepository.claim(eq("slot#1"), eq("node-a"), any(), any())).thenReturn(1);
+
+        Optional<HabitAnalysisShard> claimed = habitAnalysisLeaseService.claimNext();
+
+        assertTrue(claimed.isPresent());
+        assertEquals("slot#1", claimed.get().getShard_id());
+        assertEquals("node-a", claimed.get().getOwner());
+    }
+}
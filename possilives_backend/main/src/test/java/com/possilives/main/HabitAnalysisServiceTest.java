@@ -0,0 +1,433 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import com.possilives.main.DTO.HabitAnalysisInput;
+import com.possilives.main.DTO.HabitAnalysisProgressDTO;
+import com.possilives.main.DTO.HabitAnalysisShardDTO;
+import com.possilives.main.DTO.HabitAnalysisSummaryDTO;
+import com.possilives.main.Model.HabitAnalysisShard;
+import com.possilives.main.Model.HabitAnalysisState;
+import com.possilives.main.Repository.AuditLogRepository;
+import com.possilives.main.Repository.HabitAnalysisStateRepository;
+import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.HabitAnalysisInputLoader;
+import com.possilives.main.Service.HabitAnalysisLeaseService;
+import com.possilives.main.Service.HabitAnalysisMetrics;
+import com.possilives.main.Service.HabitAnalysisService;
+import com.possilives.main.Service.HabitRecommendationClient;
+import com.possilives.main.Service.NotificationsService;
+import com.possilives.main.Service.UserActivityService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+class HabitAnalysisServiceTest {
+
+    private static final int MAX_IN_FLIGHT = 3;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private NotificationsService notificationsService;
+
+    @Mock
+    private HabitAnalysisStateRepository habitAnalysisStateRepository;
+
+    @Mock
+    private UserActivityService userActivityService;
+
+    @Mock
+    private HabitAnalysisLeaseService habitAnalysisLeaseService;
+
+    @Mock
+    private HabitAnalysisInputLoader habitAnalysisInputLoader;
+
+    private final Map<String, HabitAnalysisInput> inputs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+    private SimpleMeterRegistry meterRegistry;
+    private HabitRecommendationClient habitRecommendationClient;
+    private HabitAnalysisService habitAnalysisService;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(MAX_IN_FLIGHT, MAX_IN_FLIGHT, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>());
+        meterRegistry = new SimpleMeterRegistry();
+        HabitAnalysisMetrics habitAnalysisMetrics = new HabitAnalysisMetrics(meterRegistry);
+        habitRecommendationClient = new HabitRecommendationClient(habitAnalysisMetrics);
+        ReflectionTestUtils.setField(habitRecommendationClient, "batchSize", 1);
+        // Nothing listens here, so every AI call fails fast and yields no recommendation
+        ReflectionTestUtils.setField(habitRecommendationClient, "habitAnalysisApiUrl", "http://localhost:1");
+        habitAnalysisService = new HabitAnalysisService(userRepository, auditLogRepository,
+            notificationsService, habitAnalysisStateRepository, userActivityService,
+            habitAnalysisLeaseService, habitRecommendationClient, habitAnalysisInputLoader, habitAnalysisMetrics, executor);
+        // Serves the inputs registered through user() and userWithHabit()
+        lenient().when(habitAnalysisInputLoader.load(anyList(), any())).thenAnswer(invocation -> {
+            List<String> userIds = invocation.getArgument(0);
+            return userIds.stream()
+                .map(id -> inputs.getOrDefault(id, new HabitAnalysisInput(id, null, List.of(), List.of())))
+                .toList();
+        });
+        ReflectionTestUtils.setField(habitAnalysisService, "parallelAnalysis", true);
+        ReflectionTestUtils.setField(habitAnalysisService, "maxInFlight", MAX_IN_FLIGHT);
+        ReflectionTestUtils.setField(habitAnalysisService, "pageSize", 50);
+        ReflectionTestUtils.setField(habitAnalysisService, "unchangedInputPolicy",
+            HabitAnalysisService.UnchangedInputPolicy.SKIP);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        habitRecommendationClient.shutdown();
+    }
+
+    @Test
+    void analyzeHabits_Parallel_IsolatesUserFailures() {
+        givenShards(shard(true));
+        List<String> users = List.of(userWithHabit("user1"), userWithHabit("user2"), user("user4"), userWithHabit("user3"));
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class))).thenReturn(users);
+        when(habitAnalysisStateRepository.findById(any())).thenReturn(Optional.empty());
+        when(habitAnalysisStateRepository.findById("user2"))
+            .thenThrow(new RuntimeException("database unavailable"));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        HabitAnalysisSummaryDTO summary = habitAnalysisService.getLastRunSummary();
+        assertNotNull(summary);
+        assertEquals("parallel", summary.getMode());
+        assertEquals(4, summary.getUsersProcessed());
+        assertEquals(1, summary.getFailed());
+        assertEquals(3, summary.getSkipped());
+        assertNotNull(summary.getWallClockMillis());
+        // One read model load for the whole page instead of per-user queries
+        verify(habitAnalysisInputLoader, times(1)).load(eq(users), any());
+    }
+
+    @Test
+    void analyzeHabits_Parallel_RespectsMaxInFlight() {
+        givenShards(shard(true));
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            users.add(userWithHabit("user" + i));
+        }
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class))).thenReturn(users);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(habitAnalysisStateRepository.findById(any())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return Optional.empty();
+        });
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        assertEquals(12, habitAnalysisService.getLastRunSummary().getUsersProcessed());
+        assertTrue(peak.get() <= MAX_IN_FLIGHT);
+        assertTrue(peak.get() > 1);
+    }
+
+    @Test
+    void analyzeHabits_ReadsUsersInKeysetPages() {
+        givenShards(shard(true));
+        ReflectionTestUtils.setField(habitAnalysisService, "pageSize", 2);
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class)))
+            .thenReturn(List.of(userWithHabit("a"), userWithHabit("b")));
+        when(userRepository.findUserIdsAfter(eq("b"), eq("g"), any(Pageable.class)))
+            .thenReturn(List.of(userWithHabit("c"), userWithHabit("d")));
+        when(userRepository.findUserIdsAfter(eq("d"), eq("g"), any(Pageable.class)))
+            .thenReturn(List.of(userWithHabit("e")));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        HabitAnalysisSummaryDTO summary = habitAnalysisService.getLastRunSummary();
+        assertEquals(5, summary.getUsersProcessed());
+        assertTrue(summary.getPeakHeapUsedBytes() > 0);
+        verify(userRepository, times(3)).findUserIdsAfter(any(), any(), any(Pageable.class));
+        verify(habitAnalysisInputLoader, times(3)).load(anyList(), any());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void analyzeHabits_UnchangedInput_SkipsAiCall() {
+        // Both runs are full refreshes, so the user is revisited even without activity
+        HabitAnalysisShard first = shard(true);
+        HabitAnalysisShard second = shard(true);
+        when(habitAnalysisLeaseService.claimNext())
+            .thenReturn(Optional.of(first))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(second))
+            .thenReturn(Optional.empty());
+        when(habitAnalysisLeaseService.renew(any())).thenReturn(true);
+        ReflectionTestUtils.setField(habitRecommendationClient, "habitAnalysisApiUrl", "http://ai.test");
+        RestTemplate restTemplate = (RestTemplate) ReflectionTestUtils.getField(habitRecommendationClient, "restTemplate");
+        MockRestServiceServer aiService = MockRestServiceServer.bindTo(restTemplate).build();
+        aiService.expect(ExpectedCount.once(), requestTo("http://ai.test/analyze-habits"))
+            .andRespond(withSuccess("{\"success\": true, \"recommendations\": \"Keep running\"}",
+                MediaType.APPLICATION_JSON));
+
+        String user = userWithHabit("user1");
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class))).thenReturn(List.of(user));
+        when(habitAnalysisStateRepository.findById("user1")).thenReturn(Optional.empty());
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        verify(habitAnalysisStateRepository).recordAnalysis(eq("user1"), fingerprint.capture(), eq("Keep running"), any());
+        assertEquals(1, habitAnalysisService.getLastRunSummary().getNotified());
+
+        // Second run with the stored fingerprint: no AI call, no notification
+        HabitAnalysisState state = new HabitAnalysisState();
+        state.setUser_id("user1");
+        state.setInputFingerprint(fingerprint.getValue());
+        state.setLastRecommendation("Keep running");
+        when(habitAnalysisStateRepository.findById("user1")).thenReturn(Optional.of(state));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        HabitAnalysisSummaryDTO summary = habitAnalysisService.getLastRunSummary();
+        assertEquals(1, summary.getUnchanged());
+        assertEquals(1.0, summary.getSkipReuseRatio());
+        verify(notificationsService, times(1)).sendEmailAndSaveNotification(any(), any(), any(), any(), any(), any());
+        aiService.verify();
+    }
+
+    @Test
+    void analyzeHabits_IncrementalShard_OnlyVisitsDirtyUsers() {
+        givenShards(shard(false));
+        when(userRepository.findDirtyUserIdsAfter(eq(""), eq("g"), any(Pageable.class))).thenReturn(List.of(user("user1")));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        HabitAnalysisSummaryDTO summary = habitAnalysisService.getLastRunSummary();
+        assertFalse(summary.getFullRefresh());
+        assertEquals(1, summary.getUsersProcessed());
+        assertEquals(1, summary.getShardsCompleted());
+        verify(userRepository, never()).findUserIdsAfter(any(), any(), any(Pageable.class));
+        verify(userActivityService).flush();
+    }
+
+    @Test
+    void analyzeHabits_ProcessesEveryClaimedShard() {
+        HabitAnalysisShard lower = shard(true);
+        lower.setUpperBound("8000");
+        HabitAnalysisShard upper = shard(true);
+        upper.setLowerBound("8000");
+        givenShards(lower, upper);
+        when(userRepository.findUserIdsAfter(eq(""), eq("8000"), any(Pageable.class))).thenReturn(List.of(user("1000")));
+        when(userRepository.findUserIdsAfter(eq("8000"), eq("g"), any(Pageable.class))).thenReturn(List.of(user("9000")));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        assertEquals(2, habitAnalysisService.getLastRunSummary().getShardsCompleted());
+        assertEquals(2, habitAnalysisService.getLastRunSummary().getUsersProcessed());
+        verify(habitAnalysisLeaseService).complete(lower);
+        verify(habitAnalysisLeaseService).complete(upper);
+    }
+
+    @Test
+    void analyzeHabits_LostLease_DoesNotCompleteShard() {
+        ReflectionTestUtils.setField(habitAnalysisService, "pageSize", 1);
+        HabitAnalysisShard shard = shard(true);
+        when(habitAnalysisLeaseService.claimNext()).thenReturn(Optional.of(shard)).thenReturn(Optional.empty());
+        when(habitAnalysisLeaseService.renew(shard)).thenReturn(false);
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class))).thenReturn(List.of(user("user1")));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        assertEquals(0, habitAnalysisService.getLastRunSummary().getShardsCompleted());
+        verify(userRepository, times(1)).findUserIdsAfter(any(), any(), any(Pageable.class));
+        verify(habitAnalysisLeaseService, never()).complete(any());
+    }
+
+    @Test
+    void analyzeHabits_ResumesShardFromCheckpoint() {
+        HabitAnalysisShard shard = shard(true);
+        shard.setLastUserId("m");
+        shard.setProcessedCount(5);
+        givenShards(shard);
+        when(userRepository.findUserIdsAfter(eq("m"), eq("g"), any(Pageable.class))).thenReturn(List.of(user("n")));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        verify(userRepository, never()).findUserIdsAfter(eq(""), any(), any(Pageable.class));
+        verify(habitAnalysisLeaseService).complete(shard);
+        assertEquals("n", shard.getLastUserId());
+        assertEquals(6, shard.getProcessedCount());
+    }
+
+    @Test
+    void analyzeHabits_SkipsUsersAlreadyAnalyzedInSlot() {
+        HabitAnalysisShard shard = shard(true);
+        shard.setSlot(LocalDateTime.of(2026, 1, 1, 8, 0));
+        givenShards(shard);
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class))).thenReturn(List.of(userWithHabit("user1")));
+        HabitAnalysisState state = new HabitAnalysisState();
+        state.setAnalyzedAt(LocalDateTime.of(2026, 1, 1, 8, 5));
+        when(habitAnalysisStateRepository.findById("user1")).thenReturn(Optional.of(state));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        assertEquals(1, habitAnalysisService.getLastRunSummary().getSkipped());
+        verify(habitAnalysisStateRepository, never()).recordAnalysis(any(), any(), any(), any());
+        verify(notificationsService, never()).sendEmailAndSaveNotification(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void analyzeHabits_StopRequested_ReleasesShardAtCheckpoint() {
+        ReflectionTestUtils.setField(habitAnalysisService, "pageSize", 1);
+        HabitAnalysisShard shard = shard(true);
+        givenShards(shard);
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class))).thenAnswer(invocation -> {
+            // Shutdown begins while the first page is being processed
+            ReflectionTestUtils.setField(habitAnalysisService, "stopping", true);
+            return List.of(user("a"));
+        });
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        verify(habitAnalysisLeaseService).release(shard);
+        verify(habitAnalysisLeaseService, never()).complete(any());
+        verify(userRepository, times(1)).findUserIdsAfter(any(), any(), any(Pageable.class));
+        assertEquals("", shard.getLastUserId());
+    }
+
+    @Test
+    void analyzeHabits_RecordsPhaseMetrics() {
+        givenShards(shard(true));
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class)))
+            .thenReturn(List.of(userWithHabit("user1"), user("user2")));
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        assertEquals(2, meterRegistry.get("habit.analysis.phase").tag("phase", "page_query").timer().count());
+        assertEquals(1, meterRegistry.get("habit.analysis.phase").tag("phase", "prompt_build").timer().count());
+        assertEquals(1, meterRegistry.get("habit.analysis.phase").tag("phase", "ai_request").timer().count());
+        assertEquals(1.0, meterRegistry.get("habit.analysis.users")
+            .tags("trigger", "scheduled", "outcome", "no_habits").counter().count());
+        assertEquals(1.0, meterRegistry.get("habit.analysis.users")
+            .tags("trigger", "scheduled", "outcome", "no_recommendation").counter().count());
+    }
+
+    @Test
+    void getProgress_ReportsCurrentShard() {
+        HabitAnalysisShard shard = shard(true);
+        shard.setSlot(LocalDateTime.of(2026, 1, 1, 8, 0));
+        givenShards(shard);
+        HabitAnalysisShard done = shard(true);
+        done.setCompletedAt(LocalDateTime.now());
+        when(habitAnalysisLeaseService.getShards(shard.getSlot())).thenReturn(List.of(done, shard));
+        when(userRepository.countUsersBetween("", "g")).thenReturn(4L);
+        when(userRepository.findUserIdsAfter(eq(""), eq("g"), any(Pageable.class)))
+            .thenReturn(List.of(user("a"), user("b")));
+        List<HabitAnalysisProgressDTO> seen = new ArrayList<>();
+        when(habitAnalysisStateRepository.findById("b")).thenAnswer(invocation -> {
+            seen.add(habitAnalysisService.getProgress());
+            return Optional.empty();
+        });
+        ReflectionTestUtils.setField(habitAnalysisService, "parallelAnalysis", false);
+
+        habitAnalysisService.analyzeHabitsAndGenerateRecommendations();
+
+        HabitAnalysisProgressDTO progress = seen.get(0);
+        assertTrue(progress.getRunning());
+        assertEquals("slot#0", progress.getCurrentShard());
+        assertEquals(4L, progress.getShardUsersTotal());
+        assertEquals(1L, progress.getShardUsersDone());
+        assertEquals(2, progress.getSlotShards());
+        assertEquals(1, progress.getSlotShardsCompleted());
+        assertFalse(habitAnalysisService.getProgress().getRunning());
+    }
+
+    @Test
+    void getRunShards_ReturnsShardDTOs() {
+        LocalDateTime slot = LocalDateTime.of(2026, 1, 1, 8, 0);
+        HabitAnalysisShard shard = shard(false);
+        shard.setSlot(slot);
+        shard.setOwner("node-1");
+        shard.setLastUserId("c");
+        shard.setProcessedCount(3);
+        when(habitAnalysisLeaseService.getShards(slot)).thenReturn(List.of(shard));
+
+        List<HabitAnalysisShardDTO> shards = habitAnalysisService.getRunShards(slot);
+
+        assertEquals(1, shards.size());
+        assertEquals("slot#0", shards.get(0).getShardId());
+        assertEquals(slot, shards.get(0).getSlot());
+        assertEquals("g", shards.get(0).getUpperBound());
+        assertFalse(shards.get(0).getFullRefresh());
+        assertEquals("node-1", shards.get(0).getOwner());
+        assertEquals("c", shards.get(0).getLastUserId());
+        assertEquals(3, shards.get(0).getProcessedCount());
+    }
+
+    private void givenShards(HabitAnalysisShard... shards) {
+        for (HabitAnalysisShard shard : shards) {
+            when(habitAnalysisLeaseService.renew(shard)).thenReturn(true);
+        }
+        OngoingStubbing<Optional<HabitAnalysisShard>> claims = when(habitAnalysisLeaseService.claimNext());
+        for (HabitAnalysisShard shard : shards) {
+            claims = claims.thenReturn(Optional.of(shard));
+        }
+        claims.thenReturn(Optional.empty());
+    }
+
+    private HabitAnalysisShard shard(boolean fullRefresh) {
+        HabitAnalysisShard shard = new HabitAnalysisShard();
+        shard.setShard_id("slot#0");
+        shard.setLowerBound("");
+        shard.setUpperBound("g");
+        shard.setFullRefresh(fullRefresh);
+        return shard;
+    }
+
+    private String user(String userId) {
+        inputs.put(userId, new HabitAnalysisInput(userId, null, List.of(), List.of()));
+        return userId;
+    }
+
+    private String userWithHabit(String userId) {
+        inputs.put(userId, new HabitAnalysisInput(userId, null,
+            List.of(new HabitAnalysisInput.HabitLine("Morning run", 5, null)), List.of()));
+        return userId;
+    }
+}
@@ -0,0 +1,112 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.possilives.main.Model.Big_Five;
+import com.possilives.main.Model.Habit;
+import com.possilives.main.Repository.HabitRepository;
+import com.possilives.main.Service.HabitCatalog;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+class HabitCatalogTest {
+
+    // openness, conscientiousness, extraversion, agreeableness, neuroticism
+    private static final double[] CURIOUS_PLANNER = {90, 80, 20, 50, 10};
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    private HabitCatalog catalog;
+
+    private final Habit reading = habit("reading", "OPENNESS");
+    private final Habit planning = habit("planning", "CONSCIENTIOUSNESS");
+    private final Habit journaling = habit("journaling", "OPENNESS", "CONSCIENTIOUSNESS");
+    private final Habit meditation = habit("meditation", "NEUROTICISM");
+    private final Habit untagged = habit("untagged");
+
+    @BeforeEach
+    void setUp() {
+        catalog = new HabitCatalog(habitRepository);
+    }
+
+    @Test
+    void top_RanksAgainstWholePersonalityAndPages() {
+        when(habitRepository.findAll()).thenReturn(List.of(meditation, reading, untagged, planning, journaling));
+
+        // journaling (90 + 80) / sqrt(2) = 120.2, reading 90, planning 80, meditation 10
+        assertEquals(List.of(journaling, reading, planning, meditation), catalog.top(CURIOUS_PLANNER, 0, 10));
+        assertEquals(List.of(journaling, reading), catalog.top(CURIOUS_PLANNER, 0, 2));
+        assertEquals(List.of(planning, meditation), catalog.top(CURIOUS_PLANNER, 2, 2));
+        assertTrue(catalog.top(CURIOUS_PLANNER, 4, 2).isEmpty());
+        verify(habitRepository, times(1)).findAll();
+    }
+
+    @Test
+    void top_KeepsCatalogOrderAmongEqualScores() {
+        Habit stretching = habit("stretching", "OPENNESS");
+        Habit sketching = habit("sketching", "OPENNESS");
+        when(habitRepository.findAll()).thenReturn(List.of(reading, stretching, sketching));
+
+        assertEquals(List.of(reading, stretching), catalog.top(CURIOUS_PLANNER, 0, 2));
+        assertEquals(List.of(sketching), catalog.top(CURIOUS_PLANNER, 2, 2));
+    }
+
+    @Test
+    void add_PublishesNewHabitWithoutReloading() {
+        when(habitRepository.findAll()).thenReturn(List.of(reading));
+        assertEquals(List.of(reading), catalog.top(CURIOUS_PLANNER, 0, 10));
+
+        catalog.add(journaling);
+        catalog.add(journaling);
+
+        assertEquals(List.of(journaling, reading), catalog.top(CURIOUS_PLANNER, 0, 10));
+        verify(habitRepository, times(1)).findAll();
+    }
+
+    @Test
+    void version_ChangesOnlyWhenTheCatalogContentChanges() {
+        Habit renamed = habit("reading", "OPENNESS");
+        renamed.setTitle("reading more");
+        when(habitRepository.findAll())
+                .thenReturn(List.of(reading, planning))
+                .thenReturn(List.of(habit("reading", "OPENNESS"), habit("planning", "CONSCIENTIOUSNESS")))
+                .thenReturn(List.of(renamed, planning))
+                .thenReturn(List.of(renamed, habit("planning", "OPENNESS")));
+
+        long loaded = catalog.version();
+        catalog.refresh();
+        assertEquals(loaded, catalog.version());
+        catalog.add(reading);
+        assertEquals(loaded, catalog.version());
+
+        catalog.refresh();
+        long retitled = catalog.version();
+        assertNotEquals(loaded, retitled);
+        catalog.refresh();
+        assertNotEquals(retitled, catalog.version());
+    }
+
+    private static Habit habit(String id, String... traitNames) {
+        Habit habit = new Habit();
+        habit.setHabit_id(id);
+        habit.setTitle(id);
+        List<Big_Five> traits = new ArrayList<>();
+        for (String name : traitNames) {
+            Big_Five trait = new Big_Five();
+            trait.setTrait(name);
+            traits.add(trait);
+        }
+        habit.setTraits(traits);
+        return habit;
+    }
+}
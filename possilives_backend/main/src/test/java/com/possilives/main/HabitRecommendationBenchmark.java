@@ -0,0 +1,111 @@
+package com.possilives.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.possilives.main.Model.Big_Five;
+import com.possilives.main.Model.Habit;
+import com.possilives.main.Repository.HabitRepository;
+import com.possilives.main.Service.HabitCatalog;
+
+import static org.mockito.Mockito.*;
+
+// Ranking a large habit catalog for one personality: the previous threshold filter with a
+// sort that counted matches in the comparator, and HabitCatalog's vector scoring with a bounded
+// heap for the first page and a deeper one. Not a unit test; run it with
+//   mvn -o test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.possilives.main.HabitRecommendationBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HabitRecommendationBenchmark {
+
+    // openness, conscientiousness, extraversion, agreeableness, neuroticism
+    private static final double[] PERSONALITY = {80, 85, 70, 90, 60};
+
+    @Param("100000")
+    public int catalogSize;
+
+    private List<Habit> habits;
+    private HabitCatalog catalog;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        habits = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            Habit habit = new Habit();
+            habit.setHabit_id("habit" + i);
+            habit.setTitle("Habit " + i);
+            List<Big_Five> traits = new ArrayList<>();
+            for (int t = 1 + random.nextInt(3); t > 0; t--) {
+                Big_Five trait = new Big_Five();
+                trait.setTrait(HabitCatalog.TRAITS.get(random.nextInt(HabitCatalog.TRAITS.size())));
+                traits.add(trait);
+            }
+            habit.setTraits(traits);
+            habits.add(habit);
+        }
+
+        HabitRepository habitRepository = mock(HabitRepository.class, withSettings().stubOnly());
+        when(habitRepository.findAll()).thenReturn(habits);
+        catalog = new HabitCatalog(habitRepository);
+        catalog.refresh();
+    }
+
+    @Benchmark
+    public List<Habit> thresholdSort() {
+        List<String> dominantTraits = new ArrayList<>();
+        for (int t = 0; t < PERSONALITY.length; t++) {
+            if (PERSONALITY[t] > 75) {
+                dominantTraits.add(HabitCatalog.TRAITS.get(t));
+            }
+        }
+        return habits.stream()
+            .filter(habit -> habit.getTraits().stream()
+                .anyMatch(trait -> dominantTraits.stream().anyMatch(userTrait -> trait.getTrait().equals(userTrait))))
+            .sorted((h1, h2) -> Long.compare(countMatches(h2.getTraits(), dominantTraits),
+                countMatches(h1.getTraits(), dominantTraits)))
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Habit> topKFirstPage() {
+        return catalog.top(PERSONALITY, 0, 20);
+    }
+
+    @Benchmark
+    public List<Habit> topKFifthPage() {
+        return catalog.top(PERSONALITY, 80, 20);
+    }
+
+    private static long countMatches(List<Big_Five> habitTraits, List<String> userTraits) {
+        return habitTraits.stream()
+            .filter(trait -> userTraits.contains(trait.getTrait()))
+            .count();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(HabitRecommendationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,199 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.possilives.main.Service.HabitAnalysisMetrics;
+import com.possilives.main.Service.HabitRecommendationClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs the client against a local stub of the AI service, which answers every prompt with
+// "echo:<prompt>" after a fixed per-request latency, or a long one for "slow" prompts. Batch
+// items with a prompt starting with "fail" come back failed
+class HabitRecommendationClientTest {
+
+    private static final long STUB_LATENCY_MILLIS = 20;
+    // Latency of any request with a prompt starting with "slow"
+    private static final long SLOW_LATENCY_MILLIS = 1000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private final AtomicInteger batchRequests = new AtomicInteger();
+    private volatile boolean batchEndpointEnabled = true;
+
+    private HttpServer server;
+    private HabitRecommendationClient client;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/analyze-habits", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.start();
+
+        client = new HabitRecommendationClient(new HabitAnalysisMetrics(meterRegistry));
+        ReflectionTestUtils.setField(client, "habitAnalysisApiUrl", "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "batchSize", 4);
+        ReflectionTestUtils.setField(client, "batchWaitMillis", 200L);
+        ReflectionTestUtils.setField(client, "batchRetryMinutes", 10L);
+        callers = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void generateRecommendations_FansBatchAnswersBackToCallers() throws Exception {
+        List<String> answers = callConcurrently(8);
+
+        for (int i = 0; i < answers.size(); i++) {
+            assertEquals("echo:prompt-" + i, answers.get(i));
+        }
+        assertEquals(2, batchRequests.get());
+        assertEquals(0, singleRequests.get());
+    }
+
+    @Test
+    void generateRecommendations_FallsBackWithoutBatchEndpoint() throws Exception {
+        batchEndpointEnabled = false;
+
+        List<String> answers = callConcurrently(4);
+        // Batching stays off until the retry interval has passed
+        assertEquals("echo:again", client.generateRecommendations("again"));
+
+        for (int i = 0; i < answers.size(); i++) {
+            assertEquals("echo:prompt-" + i, answers.get(i));
+        }
+        assertEquals(1, batchRequests.get());
+        assertEquals(5, singleRequests.get());
+    }
+
+    @Test
+    void generateRecommendations_RetriesFailedBatchItemsOnTheirOwn() throws Exception {
+        Future<String> failing = callers.submit(() -> client.generateRecommendations("fail-1"));
+        List<String> answers = callConcurrently(3);
+
+        assertEquals("echo:fail-1", failing.get());
+        for (int i = 0; i < answers.size(); i++) {
+            assertEquals("echo:prompt-" + i, answers.get(i));
+        }
+        assertEquals(1, batchRequests.get());
+        assertEquals(1, singleRequests.get());
+        assertEquals(1.0, meterRegistry.counter("habit.analysis.ai.retries").count());
+    }
+
+    @Test
+    void generateRecommendations_BatchingCutsRequests() throws Exception {
+        int prompts = 64;
+        ReflectionTestUtils.setField(client, "batchSize", 1);
+        callConcurrently(prompts);
+        int singles = singleRequests.getAndSet(0);
+
+        ReflectionTestUtils.setField(client, "batchSize", 8);
+        callConcurrently(prompts);
+
+        assertEquals(prompts, singles);
+        assertEquals(prompts / 8, batchRequests.get());
+        assertEquals(0, singleRequests.get());
+    }
+
+    @Test
+    void generateRecommendations_SlowTimedBatchDoesNotHoldUpTheNextOne() throws Exception {
+        ReflectionTestUtils.setField(client, "batchWaitMillis", 20L);
+        Future<String> slow = callers.submit(() -> client.generateRecommendations("slow-1"));
+        Thread.sleep(200);
+
+        long start = System.nanoTime();
+        assertEquals("echo:prompt", client.generateRecommendations("prompt"));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLOW_LATENCY_MILLIS / 2));
+        assertFalse(slow.isDone());
+        assertEquals("echo:slow-1", slow.get());
+    }
+
+    @Test
+    void generateRecommendations_GivesUpAfterReadTimeout() {
+        ReflectionTestUtils.setField(client, "batchSize", 1);
+        ReflectionTestUtils.setField(client, "readTimeoutMillis", 100L);
+        client.configureTimeouts();
+
+        long start = System.nanoTime();
+        assertNull(client.generateRecommendations("slow-1"));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLOW_LATENCY_MILLIS / 2));
+    }
+
+    private List<String> callConcurrently(int count) throws Exception {
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String prompt = "prompt-" + i;
+            futures.add(callers.submit(() -> client.generateRecommendations(prompt)));
+        }
+        List<String> answers = new ArrayList<>();
+        for (Future<String> future : futures) {
+            answers.add(future.get());
+        }
+        return answers;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, Object> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+            Object response;
+            boolean slow = String.valueOf(request).contains("prompt=slow");
+            if (exchange.getRequestURI().getPath().endsWith("/batch")) {
+                batchRequests.incrementAndGet();
+                if (!batchEndpointEnabled) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                List<Map<String, Object>> results = new ArrayList<>();
+                for (Map<String, Object> item : (List<Map<String, Object>>) request.get("requests")) {
+                    if (String.valueOf(item.get("prompt")).startsWith("fail")) {
+                        results.add(Map.of("id", item.get("id"), "success", false, "error", "model error"));
+                    } else {
+                        results.add(Map.of("id", item.get("id"), "success", true, "recommendations", "echo:" + item.get("prompt")));
+                    }
+                }
+                response = Map.of("success", true, "results", results);
+            } else {
+                singleRequests.incrementAndGet();
+                response = Map.of("success", true, "recommendations", "echo:" + request.get("prompt"));
+            }
+
+            Thread.sleep(slow ? SLOW_LATENCY_MILLIS : STUB_LATENCY_MILLIS);
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
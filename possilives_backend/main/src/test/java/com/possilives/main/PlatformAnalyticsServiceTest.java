@@ -0,0 +1,80 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Config.AuditAnalyticsConfig;
+import com.possilives.main.DTO.PlatformStatisticsDTO;
+import com.possilives.main.Repository.AuditDailyRollupRepository;
+import com.possilives.main.Service.PlatformAnalyticsService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@ExtendWith(MockitoExtension.class)
+class PlatformAnalyticsServiceTest {
+
+    @Mock
+    private AuditDailyRollupRepository auditDailyRollupRepository;
+
+    private ThreadPoolExecutor executor;
+    private PlatformAnalyticsService service;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        executor = new AuditAnalyticsConfig().auditAnalyticsExecutor(2, 4);
+        service = new PlatformAnalyticsService(auditDailyRollupRepository, executor);
+        ReflectionTestUtils.setField(service, "partitionDays", 7);
+        ReflectionTestUtils.setField(service, "closedGraceMinutes", 0L);
+        lenient().when(auditDailyRollupRepository.aggregatePlatformDays(any(), any())).thenReturn(new ArrayList<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void getDailyStatistics_SplitsRangeIntoPartitionsAndFillsEmptyDays() {
+        LocalDate from = today.minusDays(20);
+        when(auditDailyRollupRepository.aggregatePlatformDays(from, from.plusDays(7))).thenReturn(List.<Object[]>of(
+                new Object[] {Date.valueOf(from.plusDays(1)), 3L, 2L, 5L}));
+
+        List<PlatformStatisticsDTO> days = service.getDailyStatistics(from, today.plusDays(1));
+
+        assertEquals(21, days.size());
+        assertEquals(from, days.get(0).getDate());
+        assertEquals(new PlatformStatisticsDTO(from.plusDays(1), 3L, 2L, 5L), days.get(1));
+        assertEquals(0L, days.get(2).getActiveUsers());
+        verify(auditDailyRollupRepository).aggregatePlatformDays(from, from.plusDays(7));
+        verify(auditDailyRollupRepository).aggregatePlatformDays(from.plusDays(7), from.plusDays(14));
+        verify(auditDailyRollupRepository).aggregatePlatformDays(from.plusDays(14), today.plusDays(1));
+    }
+
+    @Test
+    void getDailyStatistics_RecomputesOnlyOpenDaysOnceClosedDaysAreCached() {
+        LocalDate from = today.minusDays(5);
+        service.getDailyStatistics(from, today.plusDays(1));
+        clearInvocations(auditDailyRollupRepository);
+
+        List<PlatformStatisticsDTO> days = service.getDailyStatistics(from, today.plusDays(1));
+
+        assertEquals(6, days.size());
+        verify(auditDailyRollupRepository).aggregatePlatformDays(today, today.plusDays(1));
+        verifyNoMoreInteractions(auditDailyRollupRepository);
+    }
+}
@@ -0,0 +1,150 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.possilives.main.Model.Habit;
+import com.possilives.main.Repository.HabitRepository;
+import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.HabitCatalog;
+import com.possilives.main.Service.RecommendationCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationCacheTest {
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    // The users' recommendation_version column, shared by every instance
+    private final Map<String, Long> userVersions = new ConcurrentHashMap<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HabitCatalog habitCatalog;
+    private RecommendationCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<List<Habit>> load = () -> {
+        loads.incrementAndGet();
+        return List.of(new Habit());
+    };
+
+    @BeforeEach
+    void setUp() {
+        when(habitRepository.findAll()).thenReturn(new ArrayList<>());
+        habitCatalog = new HabitCatalog(habitRepository);
+        lenient().when(userRepository.findRecommendationVersionById(anyString()))
+                .thenAnswer(invocation -> Optional.of(userVersions.getOrDefault(invocation.<String>getArgument(0), 0L)));
+        lenient().when(userRepository.bumpRecommendationVersion(anyString()))
+                .thenAnswer(invocation -> {
+                    userVersions.merge(invocation.getArgument(0), 1L, Long::sum);
+                    return 1;
+                });
+        cache = newInstance();
+    }
+
+    private RecommendationCache newInstance() {
+        return new RecommendationCache(habitCatalog, userRepository, meterRegistry);
+    }
+
+    @Test
+    void get_ServesRepeatRequestsUntilTheUserIsInvalidated() {
+        cache.get("user1", load);
+        cache.get("user1", load);
+        cache.get("user2", load);
+        cache.invalidateAfterCommit("user1");
+        cache.get("user1", load);
+        cache.get("user2", load);
+
+        assertEquals(3, loads.get());
+        assertEquals(2, meterRegistry.get("habit.recommendation.cache").tag("result", "hit").counter().count());
+        assertEquals(3, meterRegistry.get("habit.recommendation.cache").tag("result", "miss").counter().count());
+        assertEquals(2, meterRegistry.get("habit.recommendation.cache.size").gauge().value());
+    }
+
+    @Test
+    void get_RecomputesAfterAnotherInstanceChangesTheUser() {
+        RecommendationCache otherInstance = newInstance();
+        cache.get("user1", load);
+        cache.get("user1", load);
+        otherInstance.invalidateAfterCommit("user1");
+        cache.get("user1", load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_DoesNotCacheUnknownUsers() {
+        when(userRepository.findRecommendationVersionById("ghost")).thenReturn(Optional.empty());
+        cache.get("ghost", load);
+        cache.get("ghost", load);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, meterRegistry.get("habit.recommendation.cache.size").gauge().value());
+    }
+
+    @Test
+    void get_KeepsRankingsAcrossARefreshThatChangesNothing() {
+        cache.get("user1", load);
+        habitCatalog.refresh();
+        cache.get("user1", load);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_RecomputesAfterTheCatalogChanges() {
+        cache.get("user1", load);
+        Habit habit = new Habit();
+        habit.setHabit_id("habit1");
+        habitCatalog.add(habit);
+
+        cache.get("user1", load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_DoesNotKeepRankingComputedAcrossAnInvalidation() {
+        cache.get("user1", () -> {
+            cache.invalidateAfterCommit("user1");
+            return load.get();
+        });
+        cache.get("user1", load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_EvictsOldestEntriesWhenFull() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+        for (int i = 0; i < 11; i++) {
+            cache.get("user" + i, load);
+        }
+
+        assertEquals(10, meterRegistry.get("habit.recommendation.cache.size").gauge().value());
+        cache.get("user10", load);
+        cache.get("user0", load);
+        assertEquals(12, loads.get());
+    }
+}
@@ -0,0 +1,122 @@
+package com.possilives.main;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.possilives.main.Audit.AuditLogExporter;
+import com.possilives.main.Controller.AuditLogController;
+import com.possilives.main.Controller.HabitAnalysisController;
+import com.possilives.main.DTO.HabitAnalysisProgressDTO;
+import com.possilives.main.DTO.HabitAnalysisSummaryDTO;
+import com.possilives.main.Security.JwtAuthConverter;
+import com.possilives.main.Security.SecurityConfig;
+import com.possilives.main.Service.AuditLogService;
+import com.possilives.main.Service.CurrentUserService;
+import com.possilives.main.Service.HabitAnalysisJobService;
+import com.possilives.main.Service.HabitAnalysisService;
+import com.possilives.main.Service.PlatformAnalyticsService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+// The role checks of the URL rules in SecurityConfig, against the real filter chain
+@WebMvcTest(controllers = {AuditLogController.class, HabitAnalysisController.class})
+@Import({SecurityConfig.class, JwtAuthConverter.class})
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtDecoder jwtDecoder;
+
+    @MockitoBean
+    private AuditLogService auditLogService;
+
+    @MockitoBean
+    private AuditLogExporter auditLogExporter;
+
+    @MockitoBean
+    private PlatformAnalyticsService platformAnalyticsService;
+
+    @MockitoBean
+    private HabitAnalysisService habitAnalysisService;
+
+    @MockitoBean
+    private HabitAnalysisJobService habitAnalysisJobService;
+
+    @MockitoBean
+    private CurrentUserService currentUserService;
+
+    @Test
+    void export_RequiresAuditor() throws Exception {
+        String export = "/api/audit/export?startTime=2026-01-01T00:00:00&endTime=2026-02-01T00:00:00";
+
+        mockMvc.perform(get(export)).andExpect(status().isUnauthorized());
+        mockMvc.perform(get(export).with(jwt().authorities(new SimpleGrantedAuthority("ROLE_admin"))))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(export).with(jwt().authorities(new SimpleGrantedAuthority("ROLE_auditor"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void otherEndpoints_KeepTheirAccess() throws Exception {
+        when(auditLogService.getAuditAggregation(any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        // Any signed-in user, whatever their roles
+        mockMvc.perform(get("/api/audit/statistics/R/USERHABIT?startTime=2026-01-01T00:00:00&endTime=2026-01-31T00:00:00")
+                .with(jwt())).andExpect(status().isOk());
+    }
+
+    @Test
+    void platformStatistics_RequiresAdmin() throws Exception {
+        String statistics = "/api/audit/platform-statistics?startDate=2026-01-01&endDate=2026-01-31";
+
+        mockMvc.perform(get(statistics)).andExpect(status().isUnauthorized());
+        mockMvc.perform(get(statistics).with(jwt())).andExpect(status().isForbidden());
+        mockMvc.perform(get(statistics).with(jwt().authorities(new SimpleGrantedAuthority("ROLE_admin"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void lastRun_RequiresAdmin() throws Exception {
+        when(habitAnalysisService.getLastRunSummary()).thenReturn(new HabitAnalysisSummaryDTO());
+
+        mockMvc.perform(get("/api/habit-analysis/last-run")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/habit-analysis/last-run").with(jwt())).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/habit-analysis/last-run").with(jwt().authorities(new SimpleGrantedAuthority("ROLE_admin"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void runs_RequiresAdmin() throws Exception {
+        when(habitAnalysisService.getRunShards(any())).thenReturn(List.of());
+        String runs = "/api/habit-analysis/runs?slot=2026-01-01T08:00:00";
+
+        mockMvc.perform(get(runs)).andExpect(status().isUnauthorized());
+        mockMvc.perform(get(runs).with(jwt())).andExpect(status().isForbidden());
+        mockMvc.perform(get(runs).with(jwt().authorities(new SimpleGrantedAuthority("ROLE_admin"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void progress_RequiresAdmin() throws Exception {
+        when(habitAnalysisService.getProgress()).thenReturn(new HabitAnalysisProgressDTO());
+
+        mockMvc.perform(get("/api/habit-analysis/progress")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/habit-analysis/progress").with(jwt())).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/habit-analysis/progress").with(jwt().authorities(new SimpleGrantedAuthority("ROLE_admin"))))
+                .andExpect(status().isOk());
+    }
+}
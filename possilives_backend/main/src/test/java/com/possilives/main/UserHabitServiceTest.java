@@ -6,6 +6,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import com.possilives.main.Model.Big_Five;
 import com.possilives.main.Model.Habit;
@@ -15,6 +18,9 @@ import com.possilives.main.Model.Users;
 import com.possilives.main.Repository.HabitRepository;
 import com.possilives.main.Repository.UserHabitRepository;
 import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.HabitCatalog;
+import com.possilives.main.Service.RecommendationCache;
+import com.possilives.main.Service.UserActivityService;
 import com.possilives.main.Service.UserHabitService;
 
 import java.time.LocalDate;
@@ -40,6 +46,9 @@ class UserHabitServiceTest {
     @Mock
     private UserHabitRepository userHabitRepository;
 
+    @Mock
+    private UserActivityService userActivityService;
+
     @InjectMocks
     private UserHabitService userHabitService;
 
@@ -51,6 +60,12 @@ class UserHabitServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Real catalog and recommendation cache over the mocked repository
+        HabitCatalog habitCatalog = new HabitCatalog(habitRepository);
+        ReflectionTestUtils.setField(userHabitService, "habitCatalog", habitCatalog);
+        ReflectionTestUtils.setField(userHabitService, "recommendationCache",
+                new RecommendationCache(habitCatalog, userRepository, new SimpleMeterRegistry()));
+
         // Setup test user
         testUser = new Users();
         testUser.setUser_id("user123");
@@ -100,23 +115,37 @@ class UserHabitServiceTest {
 
     @Test
     void getRecommendedHabits_Success() {
-        when(userRepository.findById("user123")).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithPersonalitiesById("user123")).thenReturn(Optional.of(testUser));
         when(habitRepository.findAll()).thenReturn(Arrays.asList(testHabit1, testHabit2));
 
-        List<Habit> result = userHabitService.getRecommendedHabits("user123");
+        List<Habit> result = userHabitService.getRecommendedHabits("user123", 0, 20);
 
         assertNotNull(result);
         assertFalse(result.isEmpty());
-        verify(userRepository).findById("user123");
+        verify(userRepository).findWithPersonalitiesById("user123");
         verify(habitRepository).findAll();
     }
 
+    @Test
+    void getRecommendedHabits_BreaksSameDayTiesByTheHighestId() {
+        Personality open = personality("a-personality", 90.0, 10.0, LocalDate.now());
+        Personality conscientious = personality("b-personality", 10.0, 90.0, LocalDate.now());
+        Personality undated = personality("c-personality", 90.0, 10.0, null);
+        testUser.setPersonalities(new ArrayList<>(List.of(open, undated, conscientious)));
+        when(userRepository.findWithPersonalitiesById("user123")).thenReturn(Optional.of(testUser));
+        when(habitRepository.findAll()).thenReturn(Arrays.asList(testHabit1, testHabit2));
+
+        List<Habit> result = userHabitService.getRecommendedHabits("user123", 0, 20);
+
+        assertEquals("habit2", result.get(0).getHabit_id());
+    }
+
     @Test
     void getRecommendedHabits_UserNotFound() {
-        when(userRepository.findById("nonexistent")).thenReturn(Optional.empty());
+        when(userRepository.findWithPersonalitiesById("nonexistent")).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> {
-            userHabitService.getRecommendedHabits("nonexistent");
+            userHabitService.getRecommendedHabits("nonexistent", 0, 20);
         });
     }
 
@@ -144,7 +173,7 @@ class UserHabitServiceTest {
 
     @Test
     void createUserHabits_Success() {
-        when(userRepository.findById("user123")).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithHabitsById("user123")).thenReturn(Optional.of(testUser));
         when(habitRepository.findById("habit1")).thenReturn(Optional.of(testHabit1));
         when(userHabitRepository.saveAll(anyList())).thenReturn(Arrays.asList(testUserHabit));
 
@@ -158,7 +187,7 @@ class UserHabitServiceTest {
 
     @Test
     void createUserHabits_UserNotFound() {
-        when(userRepository.findById("nonexistent")).thenReturn(Optional.empty());
+        when(userRepository.findWithHabitsById("nonexistent")).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> {
             userHabitService.createUserHabits("nonexistent", Arrays.asList("habit1"));
@@ -169,7 +198,7 @@ class UserHabitServiceTest {
     void getUserHabits_Success() {
         List<User_Habits> userHabits = Arrays.asList(testUserHabit);
         testUser.setUser_habits(userHabits);
-        when(userRepository.findById("user123")).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithHabitsById("user123")).thenReturn(Optional.of(testUser));
 
         List<User_Habits> result = userHabitService.getUserHabits("user123");
 
@@ -182,13 +211,14 @@ class UserHabitServiceTest {
     void deleteHabit_Success() {
         List<User_Habits> userHabits = Arrays.asList(testUserHabit);
         testUser.setUser_habits(userHabits);
-        when(userRepository.findById("user123")).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithHabitsById("user123")).thenReturn(Optional.of(testUser));
         doNothing().when(userHabitRepository).delete(any(User_Habits.class));
 
         String result = userHabitService.deleteHabit("habit1", "user123");
 
         assertEquals("Habit deleted", result);
         verify(userHabitRepository).delete(any(User_Habits.class));
+        verify(userActivityService).markDirty("user123");
     }
 
     @Test
@@ -202,6 +232,7 @@ class UserHabitServiceTest {
         assertEquals(5, testUserHabit.getImpact_rating());
         assertEquals(4.5, testUserHabit.getAverage_impact());
         verify(userHabitRepository).save(testUserHabit);
+        verify(userActivityService).markDirty("user123");
     }
 
     @Test
@@ -212,4 +243,16 @@ class UserHabitServiceTest {
             userHabitService.updateHabitImpact("nonexistent", 5, 4.5);
         });
     }
+
+    private Personality personality(String id, double openness, double conscientiousness, LocalDate createdAt) {
+        Personality personality = new Personality();
+        personality.setPersonality_id(id);
+        personality.setOpenness(openness);
+        personality.setConscientiousness(conscientiousness);
+        personality.setExtraversion(50.0);
+        personality.setAgreeableness(50.0);
+        personality.setNeuroticism(50.0);
+        personality.setCreatedAt(createdAt);
+        return personality;
+    }
 }
@@ -6,7 +6,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.possilives.main.DTO.UserPageDTO;
+import com.possilives.main.DTO.UserSummaryDTO;
 import com.possilives.main.Model.Notifications;
 import com.possilives.main.Model.Users;
 import com.possilives.main.Repository.UserRepository;
@@ -119,9 +123,23 @@ class UserServiceAndNotificationTest {
         assertEquals(testUser, result.get(0));
     }
 
+    @Test
+    void getUserPage_CapsPageSizeAndReturnsNextKey() {
+        List<UserSummaryDTO> page = List.of(
+                new UserSummaryDTO("a", "userA", "a@example.com", true, false, null),
+                new UserSummaryDTO("b", "userB", "b@example.com", false, false, null));
+        when(userRepository.findSummariesAfter("", PageRequest.of(0, 2))).thenReturn(page);
+        ReflectionTestUtils.setField(userService, "maxPageSize", 2);
+
+        UserPageDTO result = userService.getUserPage(null, 500);
+
+        assertEquals(page, result.users());
+        assertEquals("b", result.nextAfterId());
+    }
+
     @Test
     void verifyUser_Success() {
-        when(userRepository.findById("user123")).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithNotificationsById("user123")).thenReturn(Optional.of(testUser));
         when(userRepository.save(any(Users.class))).thenReturn(testUser);
         doNothing().when(notificationsService).updateNotifcationReadStatus(anyString(), anyString());
 
@@ -134,7 +152,7 @@ class UserServiceAndNotificationTest {
 
     @Test
     void verifyUser_WrongCode() {
-        when(userRepository.findById("user123")).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithNotificationsById("user123")).thenReturn(Optional.of(testUser));
 
         boolean result = userService.verifyUser("user123", 5678);
 
@@ -145,7 +163,7 @@ class UserServiceAndNotificationTest {
 
     @Test
     void verifyUser_UserNotFound() {
-        when(userRepository.findById("nonexistent")).thenReturn(Optional.empty());
+        when(userRepository.findWithNotificationsById("nonexistent")).thenReturn(Optional.empty());
 
         boolean result = userService.verifyUser("nonexistent", 1234);
 
@@ -0,0 +1,265 @@
+package com.possilives.main;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.possilives.main.Controller.UserController;
+import com.possilives.main.DTO.PersonalityUpdateDTO;
+import com.possilives.main.DTO.ProfileUpdateDTO;
+import com.possilives.main.DTO.UserDTO;
+import com.possilives.main.DTO.UserProfileDTO;
+import com.possilives.main.DTO.UserProfileDTO.Section;
+import com.possilives.main.Model.Big_Five;
+import com.possilives.main.Model.Generations;
+import com.possilives.main.Model.Habit;
+import com.possilives.main.Model.Image;
+import com.possilives.main.Model.Personality;
+import com.possilives.main.Model.User_Habits;
+import com.possilives.main.Model.Users;
+import com.possilives.main.Repository.UserRepository;
+import com.possilives.main.Service.GenerationsService;
+import com.possilives.main.Service.HabitCatalog;
+import com.possilives.main.Service.HabitValidationService;
+import com.possilives.main.Service.NotificationsService;
+import com.possilives.main.Service.RecommendationCache;
+import com.possilives.main.Service.UserActivityService;
+import com.possilives.main.Service.UserHabitService;
+import com.possilives.main.Service.UserService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+// SQL statements issued by the service methods behind the main user endpoints, against an
+// in-memory database. Each user has several rows in every collection, so a fetch plan that
+// loads something it doesn't need, or loads per row, changes the count. Results are walked the
+// way JSON serialization walks them
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({UserController.class, UserService.class, GenerationsService.class, UserHabitService.class, HabitCatalog.class,
+        RecommendationCache.class, SimpleMeterRegistry.class})
+class UsersFetchPlanTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GenerationsService generationsService;
+
+    @Autowired
+    private UserHabitService userHabitService;
+
+    @Autowired
+    private HabitCatalog habitCatalog;
+
+    @MockitoBean
+    private NotificationsService notificationsService;
+
+    @MockitoBean
+    private HabitValidationService habitValidationService;
+
+    @MockitoBean
+    private UserActivityService userActivityService;
+
+    private Statistics statistics;
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        Users user = new Users();
+        user.setKeycloakId("kc-1");
+        user.setEmail("user1@example.com");
+        entityManager.persist(user);
+        userId = user.getUser_id();
+
+        for (int i = 0; i < 3; i++) {
+            Habit habit = new Habit();
+            habit.setTitle("Habit " + i);
+            entityManager.persist(habit);
+            Big_Five trait = new Big_Five();
+            trait.setTrait("OPENNESS");
+            trait.setLinkedHabit(habit);
+            entityManager.persist(trait);
+
+            User_Habits userHabit = new User_Habits();
+            userHabit.setHabitUser(user);
+            userHabit.setHabit(habit);
+            entityManager.persist(userHabit);
+
+            Personality personality = new Personality();
+            personality.setPersonalityUser(user);
+            personality.setOpenness(80.0 + i);
+            personality.setConscientiousness(50.0);
+            personality.setExtraversion(50.0);
+            personality.setAgreeableness(50.0);
+            personality.setNeuroticism(50.0);
+            personality.setCreatedAt(LocalDate.now().minusDays(i));
+            entityManager.persist(personality);
+
+            Generations generation = new Generations();
+            generation.setTitle("Future " + i);
+            generation.setGeneratedBy(user);
+            entityManager.persist(generation);
+            Image image = new Image();
+            image.setLink("https://example.com/" + i + ".png");
+            image.setImageGeneration(generation);
+            entityManager.persist(image);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getProfile_LoadsPersonalitiesHabitsAndGenerations() {
+        UserProfileDTO profile = userService.getProfile("kc-1", EnumSet.allOf(Section.class)).orElseThrow();
+        profile.generations().forEach(generation -> generation.getImages().size());
+        profile.user_habits().forEach(habit -> habit.getHabit().getTraits().size());
+
+        // user with personalities, habits with their habit, habit traits, generations, images
+        assertEquals(5, statistics.getPrepareStatementCount());
+        assertEquals(3, profile.personalities().size());
+        assertEquals(3, profile.user_habits().size());
+        assertEquals(3, profile.generations().size());
+    }
+
+    @Test
+    void getProfile_LoadsOnlySelectedFields() {
+        UserProfileDTO profile = userService.getProfile("kc-1", EnumSet.of(Section.GENERATIONS)).orElseThrow();
+        profile.generations().forEach(generation -> generation.getImages().size());
+
+        // user, generations, images
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertNull(profile.personalities());
+        assertNull(profile.user_habits());
+        assertEquals(3, profile.generations().size());
+    }
+
+    @Test
+    void createUser_ReturnsProfileWithoutCollections() {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setUserId(userId);
+        userDTO.setEmail("user1@example.com");
+        UserProfileDTO profile = userController.createUser(userDTO).getBody();
+        entityManager.flush();
+
+        // user, user by email, verification code update
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertNull(profile.personalities());
+        assertNull(profile.user_habits());
+        assertNull(profile.generations());
+    }
+
+    @Test
+    void updateProfile_ReturnsProfileWithoutCollections() {
+        ProfileUpdateDTO profileDTO = new ProfileUpdateDTO();
+        profileDTO.setUsername("renamed");
+        UserProfileDTO profile = userController.updateProfile(userId, profileDTO).getBody();
+        entityManager.flush();
+
+        // user, update
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("renamed", profile.username());
+        assertNull(profile.personalities());
+        assertNull(profile.user_habits());
+        assertNull(profile.generations());
+    }
+
+    @Test
+    void updatePersonality_LoadsOnlyPersonalities() {
+        PersonalityUpdateDTO personalityDTO = new PersonalityUpdateDTO();
+        personalityDTO.setOpenness(90.0);
+        personalityDTO.setConscientiousness(50.0);
+        personalityDTO.setExtraversion(50.0);
+        personalityDTO.setAgreeableness(50.0);
+        personalityDTO.setNeuroticism(50.0);
+        UserProfileDTO profile = userController.updatePersonality(userId, personalityDTO).getBody();
+        entityManager.flush();
+
+        // user with personalities, personality insert, recommendation version bump
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(4, profile.personalities().size());
+        assertNull(profile.user_habits());
+        assertNull(profile.generations());
+        assertEquals(1L, userRepository.findRecommendationVersionById(userId).orElseThrow());
+    }
+
+    @Test
+    void getUserPage_SelectsSummariesOnly() {
+        assertEquals(1, userService.getUserPage("", 50).users().size());
+
+        // one projection query, no user entities or collections
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getUserGenerations_LoadsOnlyGenerations() {
+        List<Generations> generations = generationsService.getUserGenerations("kc-1");
+        generations.forEach(generation -> generation.getImages().size());
+
+        // user with generations, images
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(3, generations.size());
+    }
+
+    @Test
+    void createGeneration_CreditCheckLoadsOnlyTheUser() {
+        assertTrue(generationsService.createGeneration("kc-1"));
+        entityManager.flush();
+
+        // user, credit update
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getUserHabits_LoadsOnlyHabits() {
+        List<User_Habits> habits = userHabitService.getUserHabits(userId);
+        habits.forEach(habit -> habit.getHabit().getTraits().size());
+
+        // user with habits and their habit, habit traits
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(3, habits.size());
+    }
+
+    @Test
+    void getRecommendedHabits_LoadsPersonalitiesAndCatalog() {
+        habitCatalog.refresh();
+        statistics.clear();
+        List<Habit> habits = userHabitService.getRecommendedHabits(userId, 0, 20);
+
+        // recommendation version, user with personalities; the catalog comes from memory
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(3, habits.size());
+
+        statistics.clear();
+        assertEquals(habits, userHabitService.getRecommendedHabits(userId, 0, 20));
+        // cached: recommendation version only
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,94 @@
+-- Compares the habit change query joined on the method signature (LIKE) with the
+-- target_id equality join, on 1M audit rows.
+--
+-- Runs in a scratch schema, so it can be pointed at any PostgreSQL database:
+--   psql -d possilives -f auditlog_habit_changes.sql
+-- Drop the schema afterwards with: DROP SCHEMA habit_change_bench CASCADE;
+
+DROP SCHEMA IF EXISTS habit_change_bench CASCADE;
+CREATE SCHEMA habit_change_bench;
+SET search_path TO habit_change_bench;
+
+CREATE TABLE habit (habit_id varchar(255) PRIMARY KEY, title varchar(255));
+CREATE TABLE user_habits (
+  user_habits_id varchar(255) PRIMARY KEY,
+  habit_user_user_id varchar(255),
+  habit_habit_id varchar(255)
+);
+CREATE TABLE auditlog (
+  auditlog_id varchar(255) PRIMARY KEY,
+  target varchar(255),
+  signature varchar(255),
+  target_id varchar(255),
+  action varchar(255),
+  created_at timestamp,
+  habit_impact integer,
+  audit_by_user_id varchar(255)
+);
+
+-- 200 catalog habits, 10k users with 5 habits each
+INSERT INTO habit SELECT 'h' || g, 'Habit ' || g FROM generate_series(1, 200) g;
+INSERT INTO user_habits
+SELECT md5('uh' || u || '-' || k), 'u' || u, 'h' || (1 + (u * 7 + k) % 200)
+FROM generate_series(1, 10000) u, generate_series(1, 5) k;
+
+-- 1M audit rows over 90 days; habit writes carry the user habit id
+INSERT INTO auditlog
+SELECT md5('a' || g),
+       CASE WHEN g % 3 = 0 THEN 'GENERATION' WHEN g % 3 = 1 THEN 'INFLUENCE' ELSE 'USERHABIT' END,
+       CASE WHEN g % 3 = 0 THEN 'GenerationsService.getUserGenerations(..)'
+            ELSE 'UserHabitService.updateHabitImpact(..)' END,
+       CASE WHEN g % 3 = 0 THEN NULL ELSE md5('uh' || (1 + g % 10000) || '-' || (1 + g % 5)) END,
+       CASE WHEN g % 3 = 0 THEN 'R' ELSE 'U' END,
+       now() - (g % 129600) * interval '1 minute',
+       1 + g % 10,
+       'u' || (1 + g % 10000)
+FROM generate_series(1, 1000000) g;
+
+CREATE INDEX idx_auditlog_target_id ON auditlog (target_id);
+CREATE INDEX idx_auditlog_user_created ON auditlog (audit_by_user_id, created_at);
+ANALYZE;
+
+\timing on
+
+-- Before: signature LIKE join (one user, last 7 days)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT CAST(a.created_at AS timestamp), a.action,
+       CASE WHEN a.target = 'USERHABIT' THEN h.title ELSE 'Unknown' END as habit_title,
+       a.habit_impact
+FROM auditlog a
+LEFT JOIN user_habits uh ON a.signature LIKE '%' || uh.user_habits_id || '%'
+LEFT JOIN habit h ON uh.habit_habit_id = h.habit_id
+WHERE a.audit_by_user_id = 'u42'
+AND a.created_at >= now() - interval '7 days'
+AND a.target IN ('USERHABIT', 'INFLUENCE')
+ORDER BY a.created_at DESC;
+
+-- After: target_id equality join
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT CAST(a.created_at AS timestamp), a.action,
+       COALESCE(h.title, 'Unknown') as habit_title,
+       a.habit_impact
+FROM auditlog a
+LEFT JOIN user_habits uh ON uh.user_habits_id = a.target_id
+LEFT JOIN habit h ON uh.habit_habit_id = h.habit_id
+WHERE a.audit_by_user_id = 'u42'
+AND a.created_at >= now() - interval '7 days'
+AND a.target IN ('USERHABIT', 'INFLUENCE')
+ORDER BY a.created_at DESC;
+
+-- Chunked variant used by the habit analysis loader (500 users)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT a.audit_by_user_id, CAST(a.created_at AS timestamp), a.action,
+       COALESCE(h.title, 'Unknown') as habit_title,
+       a.habit_impact
+FROM auditlog a
+LEFT JOIN user_habits uh ON uh.user_habits_id = a.target_id
+LEFT JOIN habit h ON uh.habit_habit_id = h.habit_id
+WHERE a.audit_by_user_id IN (SELECT 'u' || g FROM generate_series(1, 500) g)
+AND a.created_at >= now() - interval '7 days'
+AND a.target IN ('USERHABIT', 'INFLUENCE')
+ORDER BY a.audit_by_user_id, a.created_at DESC;
+
+\timing off
+RESET search_path;